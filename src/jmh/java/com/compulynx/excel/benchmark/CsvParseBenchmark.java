@@ -0,0 +1,106 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.csv.CsvFileParser;
+import com.compulynx.excel.csv.CsvRecordParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of a students CSV file: the line.split(",") approach CSVServiceImpl used before,
+ * the single-threaded RFC 4180 parser, and the parallel chunked file parser.
+ * The {@code bytes} counter is reported per second, i.e. it is the parse rate in bytes/s. With quoted=true the
+ * split baseline no longer yields the right fields; it is kept as a reference for the raw scan cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    /** Whether the last names are quoted and hold a comma and an escaped quote, e.g. "Last7, ""Jr""". */
+    @Param({"false", "true"})
+    boolean quoted;
+
+    private Path file;
+    private long fileSize;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ParsedBytes {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("students-bench-", ".csv");
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Student ID,First Name,Last Name,Date of Birth,Class Name,Score\n");
+            for (int i = 1; i <= rows; i++) {
+                String lastName = quoted ? "\"Last" + (i % 700) + ", \"\"Jr\"\"\"" : "Last" + (i % 700);
+                writer.write(i + ",First" + (i % 500) + "," + lastName + "," + from.plusDays(i % 4000)
+                        + ",Class" + (i % 5 + 1) + "," + (55 + i % 21) + "\n");
+            }
+        }
+        fileSize = Files.size(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void stringSplit(ParsedBytes counter, Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(Arrays.asList(line.split(",")));
+            }
+        }
+        counter.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void recordParser(ParsedBytes counter, Blackhole blackhole) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+        List<String> record;
+        while ((record = parser.next()) != null) {
+            blackhole.consume(record);
+        }
+        counter.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void parallelFileParser(ParsedBytes counter, Blackhole blackhole) throws IOException {
+        blackhole.consume(CsvFileParser.parseAll(file));
+        counter.bytes += fileSize;
+    }
+
+    @Benchmark
+    public void parallelRecordIterator(ParsedBytes counter, Blackhole blackhole) throws IOException {
+        try (CsvFileParser.RecordIterator records = CsvFileParser.open(file, 0)) {
+            while (records.hasNext()) {
+                blackhole.consume(records.next());
+            }
+        }
+        counter.bytes += fileSize;
+    }
+}
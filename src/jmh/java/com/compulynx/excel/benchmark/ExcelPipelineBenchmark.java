@@ -0,0 +1,89 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.service.impl.BenchmarkServices;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row throughput of the Excel pipelines: the Faker data producer, generating a workbook with generateExcelFile,
+ * streaming one back with readExcelFile, and converting the read rows to CSV.
+ * The {@code rows} counter is reported per second, i.e. it is the rows/s throughput; run with the gc profiler
+ * to get the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ExcelPipelineBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private Path dataProcessingDir;
+    private BenchmarkServices services;
+    private FileMultipartFile workbook;
+    private Map<Integer, List<String>> excelData;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ProcessedRows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dataProcessingDir = Files.createTempDirectory("students-bench-");
+        services = new BenchmarkServices(H2StudentRepository.create(H2StudentDatabase.create("excel-pipeline")),
+                dataProcessingDir);
+
+        services.excelService().generateExcelFile((long) rows);
+        Path fixture = Files.copy(dataProcessingDir.resolve("student_data.xlsx"),
+                dataProcessingDir.resolve("fixture.xlsx"));
+        workbook = new FileMultipartFile(fixture,
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        excelData = services.excelService().readExcelFile(workbook);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataProcessingDir);
+    }
+
+    @Benchmark
+    public void generateData(ProcessedRows counter, Blackhole blackhole) {
+        blackhole.consume(services.generateData(rows));
+        counter.rows += rows;
+    }
+
+    @Benchmark
+    public String generateExcelFile(ProcessedRows counter) throws IOException, InterruptedException {
+        String message = services.excelService().generateExcelFile((long) rows);
+        counter.rows += rows;
+        return message;
+    }
+
+    @Benchmark
+    public Map<Integer, List<String>> readExcelFile(ProcessedRows counter) throws IOException {
+        Map<Integer, List<String>> data = services.excelService().readExcelFile(workbook);
+        counter.rows += data.size();
+        return data;
+    }
+
+    @Benchmark
+    public ByteArrayInputStream convertExcelDataToCsv(ProcessedRows counter) {
+        ByteArrayInputStream csv = services.excelService().convertExcelDatatoCsv(excelData);
+        counter.rows += excelData.size();
+        return csv;
+    }
+}
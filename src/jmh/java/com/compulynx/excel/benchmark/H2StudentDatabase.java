@@ -0,0 +1,52 @@
+package com.compulynx.excel.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory H2 stand-in for the PostgreSQL students table, used as the database of the benchmarks.
+ */
+final class H2StudentDatabase {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private H2StudentDatabase() {
+    }
+
+    static JdbcTemplate create(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS students");
+        jdbcTemplate.execute("CREATE TABLE students ("
+                + "student_id BIGINT PRIMARY KEY, "
+                + "first_name VARCHAR(255), "
+                + "last_name VARCHAR(255), "
+                + "dob DATE, "
+                + "class_name VARCHAR(255), "
+                + "score INTEGER, "
+                + "change_version BIGINT, "
+                + "last_modified TIMESTAMP)");
+        return jdbcTemplate;
+    }
+
+    /** Inserts students 1..rows spread over five classes, with scores between 55 and 75. */
+    static void insertStudents(JdbcTemplate jdbcTemplate, int rows) {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 1; i <= rows; i++) {
+            batch.add(new Object[]{(long) i, "First" + (i % 500), "Last" + (i % 700),
+                    Date.valueOf(from.plusDays(i % 4000)), "Class" + (i % 5 + 1), 55 + i % 21});
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO students (student_id, first_name, last_name, dob, class_name, score) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.repository.StudentRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StudentRepository stand-in backed by an {@link H2StudentDatabase}, so the services can be benchmarked without
+ * a Spring context or JPA. Only findAll, saveAll and count are implemented; every other method throws.
+ */
+final class H2StudentRepository {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private static final RowMapper<Student> STUDENT_ROW_MAPPER = (rs, rowNum) -> {
+        Student student = new Student();
+        student.setStudentId(rs.getLong("student_id"));
+        student.setFirstName(rs.getString("first_name"));
+        student.setLastName(rs.getString("last_name"));
+        Date dob = rs.getDate("dob");
+        student.setDob(dob == null ? null : dob.toLocalDate());
+        student.setClassName(rs.getString("class_name"));
+        student.setScore((Integer) rs.getObject("score"));
+        return student;
+    };
+
+    private H2StudentRepository() {
+    }
+
+    static StudentRepository create(JdbcTemplate jdbcTemplate) {
+        return (StudentRepository) Proxy.newProxyInstance(StudentRepository.class.getClassLoader(),
+                new Class<?>[]{StudentRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> {
+                        if (args != null) {
+                            throw new UnsupportedOperationException(method.toString());
+                        }
+                        yield jdbcTemplate.query("SELECT * FROM students ORDER BY student_id", STUDENT_ROW_MAPPER);
+                    }
+                    case "saveAll" -> saveAll(jdbcTemplate, (Iterable<?>) args[0]);
+                    case "count" -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students", Long.class);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "H2StudentRepository";
+                    default -> throw new UnsupportedOperationException(method.toString());
+                });
+    }
+
+    /** Writes the students with MERGE, which like JPA's saveAll inserts new ids and overwrites existing ones. */
+    private static List<Student> saveAll(JdbcTemplate jdbcTemplate, Iterable<?> entities) {
+        List<Student> saved = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (Object entity : entities) {
+            Student student = (Student) entity;
+            saved.add(student);
+            batch.add(new Object[]{student.getStudentId(), student.getFirstName(), student.getLastName(),
+                    student.getDob() == null ? null : Date.valueOf(student.getDob()), student.getClassName(),
+                    student.getScore(), student.getChangeVersion(),
+                    student.getLastModified() == null ? null : Timestamp.valueOf(student.getLastModified())});
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                merge(jdbcTemplate, batch);
+            }
+        }
+        merge(jdbcTemplate, batch);
+        return saved;
+    }
+
+    private static void merge(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("MERGE INTO students KEY (student_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+            batch.clear();
+        }
+    }
+}
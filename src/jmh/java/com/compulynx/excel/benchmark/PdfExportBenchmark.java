@@ -0,0 +1,62 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.service.impl.BenchmarkServices;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row throughput of convertLargeDataToPdf over students already loaded from the H2 table, written to a
+ * discarding stream. The fixture stops at 10k rows: the table is added to the document again every 1000 rows,
+ * each time from its first row, so the layout cost grows quadratically and 1M rows does not finish in a
+ * measurement iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PdfExportBenchmark {
+
+    @Param({"10000"})
+    int rows;
+
+    private Path dataProcessingDir;
+    private BenchmarkServices services;
+    private List<Student> students;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RenderedRows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JdbcTemplate jdbcTemplate = H2StudentDatabase.create("pdf-export");
+        H2StudentDatabase.insertStudents(jdbcTemplate, rows);
+        dataProcessingDir = Files.createTempDirectory("students-bench-");
+        services = new BenchmarkServices(H2StudentRepository.create(jdbcTemplate), dataProcessingDir);
+        students = services.studentService().getAllStudents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataProcessingDir);
+    }
+
+    @Benchmark
+    public void convertLargeDataToPdf(RenderedRows counter) {
+        services.pdfConverterService().convertLargeDataToPdf(students, OutputStream.nullOutputStream());
+        counter.rows += students.size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.dto.StudentPatch;
+import com.compulynx.excel.repository.StudentBatchRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the ways of updating every row of a 1M-row students table:
+ * one load plus one save per student (what editStudent does), batched JDBC patches,
+ * and set-based UPDATE statements. The batched and set-based writes run the transactions of patchStudents and
+ * addToScoreByClassName, including the change clock step and the change_version and last_modified columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class StudentBulkUpdateBenchmark {
+
+    /** The statement Hibernate issues for StudentRepository.addToScoreByClassName. */
+    private static final String ADD_TO_SCORE_SQL = "UPDATE students SET score = score + ?, change_version = ?, "
+            + "last_modified = ? WHERE class_name = ?";
+    /**
+     * H2 has no ON CONFLICT ... RETURNING, so the clock row is bumped and read back instead; like
+     * StudentChangeRepository.nextVersion this keeps the row locked until the transaction ends.
+     */
+    private static final String NEXT_VERSION_SQL = "UPDATE student_change_clock SET version = version + 1 WHERE id = 1";
+
+    @Param({"1000000"})
+    int rows;
+
+    private JdbcTemplate jdbcTemplate;
+    private StudentBatchRepository studentBatchRepository;
+    private TransactionTemplate transactionTemplate;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbcTemplate = H2StudentDatabase.create("bulk-update");
+        H2StudentDatabase.insertStudents(jdbcTemplate, rows);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS student_change_clock");
+        jdbcTemplate.execute("CREATE TABLE student_change_clock (id INTEGER PRIMARY KEY, version BIGINT NOT NULL, "
+                + "reset_version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO student_change_clock (id, version, reset_version) VALUES (1, 0, 0)");
+        studentBatchRepository = new StudentBatchRepository(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Benchmark
+    public long perStudentLoadAndSave() throws SQLException {
+        int newScore = 60 + round++ % 10;
+        long updated = 0;
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT student_id, first_name, last_name, dob, class_name, score FROM students WHERE student_id = ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE students SET first_name = ?, last_name = ?, dob = ?, class_name = ?, score = ? WHERE student_id = ?")) {
+            connection.setAutoCommit(false);
+            for (long id = 1; id <= rows; id++) {
+                select.setLong(1, id);
+                try (ResultSet row = select.executeQuery()) {
+                    row.next();
+                    update.setString(1, row.getString(2));
+                    update.setString(2, row.getString(3));
+                    update.setDate(3, row.getDate(4));
+                    update.setString(4, row.getString(5));
+                    update.setInt(5, newScore);
+                    update.setLong(6, id);
+                    updated += update.executeUpdate();
+                }
+            }
+            connection.commit();
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public long batchedPatches() {
+        int newScore = 60 + round++ % 10;
+        Iterator<StudentPatch> patches = IntStream.rangeClosed(1, rows)
+                .mapToObj(id -> new StudentPatch((long) id, null, null, null, null, newScore))
+                .iterator();
+        return transactionTemplate.execute(status -> studentBatchRepository.patch(patches, 1_000, nextVersion()));
+    }
+
+    @Benchmark
+    public long setBasedScoreAdjustment() {
+        long updated = 0;
+        for (int classNumber = 1; classNumber <= 5; classNumber++) {
+            String className = "Class" + classNumber;
+            // One transaction per class, as every addToScoreByClassName call is its own request
+            updated += transactionTemplate.execute(status -> jdbcTemplate.update(ADD_TO_SCORE_SQL, 1, nextVersion(),
+                    Timestamp.valueOf(LocalDateTime.now()), className));
+        }
+        return updated;
+    }
+
+    private long nextVersion() {
+        jdbcTemplate.update(NEXT_VERSION_SQL);
+        return jdbcTemplate.queryForObject("SELECT version FROM student_change_clock WHERE id = 1", Long.class);
+    }
+}
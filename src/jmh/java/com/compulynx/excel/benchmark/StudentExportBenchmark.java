@@ -0,0 +1,64 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.service.impl.BenchmarkServices;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row throughput of the CSV and Excel exports, from the findAll on the H2 students table to the serialized file.
+ * The {@code rows} counter is reported per second, i.e. it is the rows/s throughput; run with the gc profiler
+ * to get the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class StudentExportBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private Path dataProcessingDir;
+    private BenchmarkServices services;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ExportedRows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JdbcTemplate jdbcTemplate = H2StudentDatabase.create("student-export");
+        H2StudentDatabase.insertStudents(jdbcTemplate, rows);
+        dataProcessingDir = Files.createTempDirectory("students-bench-");
+        services = new BenchmarkServices(H2StudentRepository.create(jdbcTemplate), dataProcessingDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataProcessingDir);
+    }
+
+    @Benchmark
+    public byte[] exportCSVFile(ExportedRows counter) {
+        byte[] csv = services.csvService().exportCSVFile(null);
+        counter.rows += rows;
+        return csv;
+    }
+
+    @Benchmark
+    public byte[] exportExcelFile(ExportedRows counter) throws IOException {
+        byte[] workbook = services.excelService().exportExcelFile(null);
+        counter.rows += rows;
+        return workbook;
+    }
+}
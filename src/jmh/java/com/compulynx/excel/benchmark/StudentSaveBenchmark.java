@@ -0,0 +1,82 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.service.impl.BenchmarkServices;
+import com.compulynx.excel.service.impl.StudentRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row throughput of saveStudentData on parsed upload rows: the row to Student mapping on its own, and the
+ * whole call including the saveAll into the H2 students table.
+ * The {@code rows} counter is reported per second, i.e. it is the rows/s throughput; run with the gc profiler
+ * to get the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class StudentSaveBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private Path dataProcessingDir;
+    private BenchmarkServices services;
+    private List<List<String>> rawData;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SavedRows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataProcessingDir = Files.createTempDirectory("students-bench-");
+        services = new BenchmarkServices(H2StudentRepository.create(H2StudentDatabase.create("student-save")),
+                dataProcessingDir);
+
+        // Rows as readExcelFile returns them: numeric cells come back as doubles
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        rawData = new ArrayList<>(rows + 1);
+        rawData.add(List.of("studentId", "firstName", "lastName", "DOB", "class", "score"));
+        for (int i = 1; i <= rows; i++) {
+            rawData.add(List.of(String.valueOf((double) i), "First" + (i % 500), "Last" + (i % 700),
+                    from.plusDays(i % 4000).toString(), "Class" + (i % 5 + 1),
+                    String.valueOf((double) (55 + i % 21))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataProcessingDir);
+    }
+
+    @Benchmark
+    public void mapRows(SavedRows counter, Blackhole blackhole) {
+        for (int i = 1; i < rawData.size(); i++) {
+            Student student = StudentRowMapper.toStudent(rawData.get(i), 10);
+            blackhole.consume(student);
+        }
+        counter.rows += rows;
+    }
+
+    @Benchmark
+    public List<Student> saveStudentData(SavedRows counter) {
+        List<Student> saved = services.studentService().saveStudentData(rawData).getStudents();
+        counter.rows += saved.size();
+        return saved;
+    }
+}
@@ -0,0 +1,111 @@
+package com.compulynx.excel.benchmark;
+
+import com.compulynx.excel.service.impl.BenchmarkServices;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the direct xlsx writer with POI's SXSSFWorkbook on the Excel export, from the findAll on the H2
+ * students table to the workbook bytes, which are discarded instead of being buffered.
+ * The {@code rows} counter is the rows/s throughput. The {@code peakHeapMb} counter is the peak heap used during
+ * each iteration, summed over the heap pools after a GC at the start of the iteration; it includes the exported
+ * students.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class XlsxWriterBenchmark {
+
+    @Param({"sxssf", "direct"})
+    String writer;
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private Path dataProcessingDir;
+    private BenchmarkServices services;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ExportedRows {
+        public long rows;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PeakHeap {
+        public long peakHeapMb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+            peakHeapMb = 0;
+        }
+
+        /** Updated after every export, so the counter is current whenever JMH collects it. */
+        void record() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapMb = Math.max(peakHeapMb, peak / (1024 * 1024));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JdbcTemplate jdbcTemplate = H2StudentDatabase.create("xlsx-writer");
+        H2StudentDatabase.insertStudents(jdbcTemplate, rows);
+        dataProcessingDir = Files.createTempDirectory("students-bench-");
+        services = new BenchmarkServices(H2StudentRepository.create(jdbcTemplate), dataProcessingDir);
+        services.setExcelWriter(writer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataProcessingDir);
+    }
+
+    @Benchmark
+    public long exportExcelFile(ExportedRows counter, PeakHeap peakHeap) throws IOException {
+        DiscardingOutputStream outputStream = new DiscardingOutputStream();
+        services.excelService().exportExcelFile(null, outputStream);
+        counter.rows += rows;
+        peakHeap.record();
+        return outputStream.count;
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.index.StudentColumnarIndexHolder;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.repository.StudentRepository;
+import com.compulynx.excel.service.PdfConverterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wires the services by hand for the benchmarks, the way Spring would, around a given repository.
+ * It lives in this package because PdfConverterServiceImpl is package-private.
+ * The columnar index stays disabled, change events are dropped, and change versions come from an in-memory
+ * counter instead of the PostgreSQL clock row.
+ */
+public final class BenchmarkServices {
+
+    private final StudentServiceImpl studentService;
+    private final ExcelServiceImpl excelService;
+    private final CSVServiceImpl csvService;
+    private final PdfConverterService pdfConverterService;
+
+    public BenchmarkServices(StudentRepository studentRepository, Path dataProcessingDir) {
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        DataProcessingDirectory dataProcessingDirectory = new DataProcessingDirectory(dataProcessingDir.toString());
+        StudentColumnarIndexHolder studentIndex = new StudentColumnarIndexHolder(studentRepository, null, null);
+        AtomicLong changeClock = new AtomicLong();
+        StudentChangeRepository studentChangeRepository = new StudentChangeRepository(null) {
+            @Override
+            public long nextVersion() {
+                return changeClock.incrementAndGet();
+            }
+        };
+        this.studentService = new StudentServiceImpl(studentRepository, null, studentChangeRepository, null, null,
+                studentIndex, null, event -> { }, metrics, dataProcessingDirectory);
+        this.excelService = new ExcelServiceImpl(studentService, null, metrics, dataProcessingDirectory);
+        this.pdfConverterService = new PdfConverterServiceImpl(metrics);
+        this.csvService = new CSVServiceImpl(studentService, null, pdfConverterService, null, metrics);
+    }
+
+    /**
+     * Runs the Excel generator's data producer for students 1..rows on the calling thread.
+     *
+     * @return The queue holding the generated rows.
+     */
+    public BlockingQueue<?> generateData(long rows) {
+        BlockingQueue<ExcelServiceImpl.StudentData> queue = new LinkedBlockingQueue<>();
+        excelService.generateData(1, rows, queue);
+        return queue;
+    }
+
+    /** Selects the Excel export writer, {@code direct} (the default) or {@code sxssf}, like {@code excel.writer}. */
+    public void setExcelWriter(String writer) {
+        excelService.writer = writer;
+    }
+
+    public StudentServiceImpl studentService() {
+        return studentService;
+    }
+
+    public ExcelServiceImpl excelService() {
+        return excelService;
+    }
+
+    public CSVServiceImpl csvService() {
+        return csvService;
+    }
+
+    public PdfConverterService pdfConverterService() {
+        return pdfConverterService;
+    }
+}
@@ -0,0 +1,61 @@
+package com.compulynx.excel.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory where generated and converted files are written. Defaults to /var/log/applications/API/dataprocessing
+ * (C:\var\log\applications\API\dataprocessing on Windows) and can be moved with the dataprocessing.dir property.
+ */
+@Component
+public class DataProcessingDirectory {
+
+    private final Path baseDir;
+
+    public DataProcessingDirectory(@Value("${dataprocessing.dir:}") String configuredDir) {
+        this.baseDir = configuredDir == null || configuredDir.isBlank() ? defaultDir() : Paths.get(configuredDir);
+    }
+
+    /**
+     * Returns the path of the given file inside the directory, creating the directory if it does not exist yet.
+     *
+     * @param fileName The name of the file.
+     * @return The path of the file.
+     */
+    public Path resolve(String fileName) throws IOException {
+        if (!Files.exists(baseDir)) {
+            Files.createDirectories(baseDir);
+        }
+        return baseDir.resolve(fileName);
+    }
+
+    /**
+     * Returns the files inside the directory whose names match the given glob.
+     *
+     * @param glob A file name pattern, e.g. upload-*.
+     * @return The matching files, in no particular order.
+     */
+    public List<Path> list(String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(resolve(""), glob)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static Path defaultDir() {
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win")) {
+            return Paths.get("C:\\var\\log\\applications\\API\\dataprocessing\\");
+        }
+        return Paths.get("/var/log/applications/API/dataprocessing/");
+    }
+}
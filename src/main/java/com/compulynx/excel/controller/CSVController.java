@@ -1,13 +1,20 @@
 package com.compulynx.excel.controller;
 
+import com.compulynx.excel.dto.ImportSummary;
+import com.compulynx.excel.dto.SavedStudents;
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.export.ExportArtifactCache;
 import com.compulynx.excel.service.CSVService;
 import com.compulynx.excel.service.PdfConverterService;
+import com.compulynx.excel.service.StudentImportService;
 import com.compulynx.excel.service.StudentService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,52 +28,124 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CSVController {
 
+    static final String REJECTED_ROWS_HEADER = "X-Rejected-Rows";
+    static final String REJECT_FILE_ID_HEADER = "X-Reject-File-Id";
+
     private final CSVService csvService;
+    @Lazy
     private final PdfConverterService pdfConverterService;
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
+    private final ExportArtifactCache exportArtifactCache;
 
     /**
      * This method reads a CSV file, saves the data to the database, and returns the list of students.
      * It uses the CSVService to handle the file processing and database interaction.
+     * Invalid rows are skipped; their number is returned in the X-Rejected-Rows header and, when there are any,
+     * the id of the reject file to download from /api/csv/rejects/{id} in the X-Reject-File-Id header.
      *
      * @param multipartFile The uploaded CSV file containing student data.
-     * @return A list of Student objects that were saved to the database.
+     * @return A ResponseEntity containing the Student objects that were saved to the database.
      * @throws IOException If there is an error reading the file or saving data to the database.
      */
     @PostMapping("/uploadStudentsData")
-    public List<Student> uploadStudentsData(@RequestParam("file") MultipartFile multipartFile) throws IOException {
-        return this.csvService.readAndSaveCsvFile(multipartFile);
+    public ResponseEntity<List<Student>> uploadStudentsData(@RequestParam("file") MultipartFile multipartFile)
+            throws IOException {
+        SavedStudents saved = this.csvService.readAndSaveCsvFile(multipartFile);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(REJECTED_ROWS_HEADER, String.valueOf(saved.getRejectedRows()));
+        if (saved.getRejectFileId() != null) {
+            response.header(REJECT_FILE_ID_HEADER, saved.getRejectFileId());
+        }
+        return response.body(saved.getStudents());
     }
 
-    /** This method exports the student data to a CSV file and returns it as a downloadable response.
-     * It sets the appropriate headers for file download and uses the CSVService to generate the CSV data.
+    /**
+     * This method imports a CSV file idempotently. Rows are upserted by student ID in batches, and batches that
+     * were already imported unchanged are skipped, so re-uploading the same file leaves the database untouched.
+     * Invalid rows are skipped and written to a reject file, whose id is returned in the summary.
      *
-     * @return A ResponseEntity containing the CSV file as a byte array, along with headers for file download.
+     * @param multipartFile The uploaded CSV file containing student data.
+     * @return An ImportSummary with the number of rows, batches, skipped batches, affected and rejected rows.
+     * @throws IOException If there is an error reading the file.
      */
-    @PostMapping("/exportToCsvFile")
-    public ResponseEntity<byte[]> exportToCsvFile() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "students_export.pdf");
-
-        return new ResponseEntity<>(this.csvService.exportCSVFile(), headers, HttpStatus.OK);
+    @PostMapping("/upsertStudentsData")
+    public ImportSummary upsertStudentsData(@RequestParam("file") MultipartFile multipartFile) throws IOException {
+        return this.csvService.upsertCsvFile(multipartFile);
     }
 
-    /** This method exports the student data to a PDF file and writes it directly to the HTTP response output stream.
-     * It sets the content type and headers for file download, retrieves the student data, and uses the PdfConverterService
-     * to convert the data to PDF format and write it to the response.
+    /**
+     * This method downloads the rows rejected by an import, as a CSV file with the row number and the reasons
+     * in front of the original values.
      *
-     * @param response The HttpServletResponse object used to set headers and write the PDF data.
-     * @throws IOException If there is an error writing the PDF data to the response output stream.
+     * @param rejectFileId The reject file id returned in the ImportSummary of the import.
+     * @return A ResponseEntity containing the reject file, or 404 if there is no reject file with that id.
+     * @throws IOException If there is an error locating the file.
      */
-    @PostMapping("/exportToPdfFile")
-    public void exportToPdfFile(HttpServletResponse response) throws IOException {
-        response.setContentType("application/pdf");
-        response.setHeader("Content-Disposition", "attachment; filename=students.pdf");
+    @GetMapping("/rejects/{rejectFileId}")
+    public ResponseEntity<Resource> downloadRejectFile(@PathVariable String rejectFileId) throws IOException {
+        return studentImportService.getRejectFile(rejectFileId)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                "attachment; filename=rejects-" + rejectFileId + ".csv")
+                        .<Resource>body(new FileSystemResource(file)))
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        // Pull from database via a Stream or Iterator to avoid Loading the whole List!
-        Iterable<Student> students = studentService.getAllStudents();
+    /** This method exports the student data to a CSV file and returns it as a downloadable response.
+     * The file is generated once per version of the data and served from the export cache afterwards,
+     * and a request whose If-None-Match holds the current ETag gets 304 Not Modified.
+     * With since, only the students changed after that change version are exported, with the version and kind
+     * of each change, straight from the database and without the cache; className is ignored then.
+     *
+     * @param className An optional class to export; all students are exported without it.
+     * @param since An optional change version; only the changes after it are exported.
+     * @param request The HTTP request, whose If-None-Match header is checked.
+     * @param response The HttpServletResponse the CSV file is written to.
+     * @throws IOException If there is an error generating the file or writing it to the response.
+     */
+    @RequestMapping(value = "/exportToCsvFile", method = {RequestMethod.GET, RequestMethod.POST})
+    public void exportToCsvFile(@RequestParam(required = false) String className,
+                                @RequestParam(required = false) Long since, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        if (since != null) {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=students_changes.csv");
+            csvService.exportChangesCSVFile(since, response.getOutputStream());
+            return;
+        }
+        ExportArtifactCache.Key key = exportArtifactCache.key("csv", className);
+        if (exportArtifactCache.isEnabled() && ExportDownload.notModified(request, response, key.etag())) {
+            return;
+        }
+        try (ExportArtifactCache.Artifact artifact = exportArtifactCache.get(key,
+                outputStream -> outputStream.write(csvService.exportCSVFile(className)))) {
+            ExportDownload.send(artifact, MediaType.APPLICATION_OCTET_STREAM_VALUE, "students_export.csv", response);
+        }
+    }
 
-        pdfConverterService.convertLargeDataToPdf(students, response.getOutputStream());
+    /** This method exports the student data to a PDF file and returns it as a downloadable response.
+     * The students are read from the database and converted with the PdfConverterService once per version of
+     * the data; later requests are served from the export cache, and a request whose If-None-Match holds the
+     * current ETag gets 304 Not Modified.
+     *
+     * @param className An optional class to export; all students are exported without it.
+     * @param request The HTTP request, whose If-None-Match header is checked.
+     * @param response The HttpServletResponse the PDF file is written to.
+     * @throws IOException If there is an error generating the file or writing it to the response.
+     */
+    @RequestMapping(value = "/exportToPdfFile", method = {RequestMethod.GET, RequestMethod.POST})
+    public void exportToPdfFile(@RequestParam(required = false) String className, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        ExportArtifactCache.Key key = exportArtifactCache.key("pdf", className);
+        if (exportArtifactCache.isEnabled() && ExportDownload.notModified(request, response, key.etag())) {
+            return;
+        }
+        try (ExportArtifactCache.Artifact artifact = exportArtifactCache.get(key,
+                outputStream -> pdfConverterService.convertLargeDataToPdf(
+                        studentService.getStudentsForExport(className), outputStream))) {
+            ExportDownload.send(artifact, MediaType.APPLICATION_PDF_VALUE, "students.pdf", response);
+        }
     }
 }
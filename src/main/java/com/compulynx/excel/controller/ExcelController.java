@@ -1,14 +1,17 @@
 package com.compulynx.excel.controller;
 
+import com.compulynx.excel.dto.ImportSummary;
 import com.compulynx.excel.dto.TextResponse;
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.export.ExportArtifactCache;
 import com.compulynx.excel.service.ExcelService;
 import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.repository.query.Param;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -25,7 +28,9 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ExcelController {
 
+    @Lazy
     private final ExcelService excelService;
+    private final ExportArtifactCache exportArtifactCache;
 
     /** This method generates an Excel file with the specified number of rows and returns a TextResponse containing the file's content or a message.
      * It uses the ExcelService to create the Excel file and handles any exceptions that may occur during the file generation process.
@@ -72,20 +77,40 @@ public class ExcelController {
         return ResponseEntity.ok(response);
     }
 
+    /** This method imports an uploaded Excel file idempotently, upserting its rows by student ID in batches.
+     * Batches that were already imported unchanged are skipped, so re-uploading the same file is almost free.
+     * Invalid rows are skipped and can be downloaded from /api/csv/rejects/{rejectFileId}.
+     *
+     * @param multipartFile The uploaded Excel file containing student data.
+     * @return A ResponseEntity containing an ImportSummary with the row, batch, affected and rejected row counts.
+     * @throws IOException If there is an error reading the file.
+     */
+    @PostMapping("/upsertStudentsData")
+    public ResponseEntity<ImportSummary> upsertStudentsData(@RequestParam("file") MultipartFile multipartFile)
+            throws IOException {
+        return ResponseEntity.ok(this.excelService.upsertExcelFile(multipartFile));
+    }
+
     /** This method exports the student data to an Excel file and returns it as a downloadable response.
-     * It sets the appropriate headers for file download and uses the ExcelService to generate the Excel data.
+     * The file is generated once per version of the data and served from the export cache afterwards,
+     * and a request whose If-None-Match holds the current ETag gets 304 Not Modified.
      *
-     * @return A ResponseEntity containing the Excel file as a byte array, along with headers for file download.
+     * @param className An optional class to export; all students are exported without it.
+     * @param request The HTTP request, whose If-None-Match header is checked.
+     * @param response The HttpServletResponse the Excel file is written to.
      * @throws IOException If there is an error during file generation or writing the response.
      */
-    @PostMapping("/exportToExcelFile")
-    public ResponseEntity<byte[]> exportToExcelFile() throws IOException {
-
-        // Set headers for file download
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "students_export.xlsx");
-
-        return new ResponseEntity<>(this.excelService.exportExcelFile(), headers, HttpStatus.OK);
-     }
+    @RequestMapping(value = "/exportToExcelFile", method = {RequestMethod.GET, RequestMethod.POST})
+    public void exportToExcelFile(@RequestParam(required = false) String className, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        ExportArtifactCache.Key key = exportArtifactCache.key("xlsx", className);
+        if (exportArtifactCache.isEnabled() && ExportDownload.notModified(request, response, key.etag())) {
+            return;
+        }
+        try (ExportArtifactCache.Artifact artifact = exportArtifactCache.get(key,
+                outputStream -> excelService.exportExcelFile(className, outputStream))) {
+            ExportDownload.send(artifact, MediaType.APPLICATION_OCTET_STREAM_VALUE, "students_export.xlsx",
+                    response);
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package com.compulynx.excel.controller;
+
+import com.compulynx.excel.export.ExportArtifactCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Sends cached export files. Every response carries the ETag of the export, and a request whose If-None-Match
+ * already holds it is answered with 304 Not Modified before the export is generated or read.
+ */
+final class ExportDownload {
+
+    /** Clients may keep an export but have to revalidate it, since any write changes its ETag. */
+    private static final String CACHE_CONTROL = "no-cache";
+
+    private ExportDownload() {
+    }
+
+    /**
+     * Answers 304 Not Modified if the client already holds this version of the export.
+     *
+     * @return true if the response is complete and the export must not be sent.
+     */
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.strip();
+            // If-None-Match uses the weak comparison, so W/"x" matches "x"
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the cached file with {@link java.nio.channels.FileChannel#transferTo}, which hands the file to the
+     * response in chunks without reading it into the heap.
+     */
+    static void send(ExportArtifactCache.Artifact artifact, String contentType, String fileName,
+                     HttpServletResponse response) throws IOException {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+        response.setHeader(HttpHeaders.ETAG, artifact.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setContentLengthLong(artifact.size());
+
+        WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+        long position = 0;
+        while (position < artifact.size()) {
+            position += artifact.channel().transferTo(position, artifact.size() - position, body);
+        }
+    }
+}
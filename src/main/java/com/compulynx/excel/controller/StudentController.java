@@ -1,15 +1,33 @@
 package com.compulynx.excel.controller;
 
+import com.compulynx.excel.dto.BulkOperationResponse;
+import com.compulynx.excel.dto.LeaderboardResponse;
+import com.compulynx.excel.dto.StudentChange;
+import com.compulynx.excel.dto.StudentField;
+import com.compulynx.excel.dto.StudentPatch;
 import com.compulynx.excel.entity.Student;
 import com.compulynx.excel.service.StudentService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/student")
@@ -17,6 +35,7 @@ import java.util.List;
 public class StudentController {
 
     private final StudentService studentService;
+    private final ObjectMapper objectMapper;
 
     /**
      * This method retrieves all students from the database and returns them in the response.
@@ -29,6 +48,81 @@ public class StudentController {
         return new ResponseEntity<>(studentService.getAllStudents(), HttpStatus.OK);
     }
 
+    /**
+     * This method streams the students to the response while they are read from a database cursor, instead of
+     * building the whole list first, so the first students arrive at once and memory use does not grow with
+     * the number of students. With stream=ndjson each student is a JSON object on its own line; with
+     * stream=json the response is one JSON array, sent in chunks.
+     *
+     * @param stream The format to stream, ndjson or json.
+     * @param className The class to stream, or all students when it is not given.
+     * @param fields A comma-separated list of the fields to include, e.g. "studentId,score"; all fields by default.
+     * @param response The HttpServletResponse the students are written to.
+     * @throws ResponseStatusException With BAD_REQUEST if the format or a field is unknown, before anything is sent.
+     * @throws IOException If there is an error writing the students to the response.
+     */
+    @GetMapping(params = "stream")
+    public void streamStudents(@RequestParam String stream,
+                               @RequestParam(required = false) String className,
+                               @RequestParam(required = false) String fields,
+                               HttpServletResponse response) throws IOException {
+        boolean jsonArray = "json".equalsIgnoreCase(stream);
+        if (!jsonArray && !"ndjson".equalsIgnoreCase(stream)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown stream format: " + stream);
+        }
+        Set<StudentField> projection;
+        try {
+            projection = StudentField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        response.setContentType(jsonArray ? MediaType.APPLICATION_JSON_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            if (jsonArray) {
+                generator.writeStartArray();
+            }
+            // Send the headers, and the opening bracket, before the query runs
+            generator.flush();
+            studentService.streamStudents(className, projection, student -> {
+                try {
+                    writeStudent(generator, student, projection);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (jsonArray) {
+                generator.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeStudent(JsonGenerator generator, Student student, Set<StudentField> fields)
+            throws IOException {
+        generator.writeStartObject();
+        for (StudentField field : fields) {
+            generator.writeFieldName(field.getJsonName());
+            switch (field) {
+                case STUDENT_ID -> generator.writeNumber(student.getStudentId());
+                case FIRST_NAME -> generator.writeString(student.getFirstName());
+                case LAST_NAME -> generator.writeString(student.getLastName());
+                case DOB -> generator.writeString(student.getDob() == null ? null : student.getDob().toString());
+                case CLASS_NAME -> generator.writeString(student.getClassName());
+                case SCORE -> {
+                    if (student.getScore() == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(student.getScore());
+                    }
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
     /**
      * This method retrieves a student by their ID from the database and returns it in the response.
      * It uses the StudentService to fetch the data and wraps it in a ResponseEntity with an HTTP status of OK.
@@ -41,6 +135,78 @@ public class StudentController {
         return new ResponseEntity<>(studentService.getStudentById(id), HttpStatus.OK);
     }
 
+    /** This method retrieves the students whose score lies within the given inclusive range, ordered by score.
+     * It uses the StudentService, which serves the query from the in-memory student index when it is enabled.
+     *
+     * @param minScore The lowest score to include.
+     * @param maxScore The highest score to include.
+     * @return A ResponseEntity containing the matching Student objects and an HTTP status of OK.
+     */
+    @GetMapping("/byScoreRange")
+    public ResponseEntity<List<Student>> getStudentsByScoreRange(@RequestParam int minScore,
+                                                                 @RequestParam int maxScore) {
+        return new ResponseEntity<>(studentService.getStudentsByScoreRange(minScore, maxScore), HttpStatus.OK);
+    }
+
+    /** This method returns the highest or lowest scoring students of every class and of all classes together
+     * in one call, e.g. the top 50 of each class or, with percent=10 and sortDirection=ASC, the bottom decile.
+     * It uses the StudentService, which reads each class from the score index up to its own limit.
+     *
+     * @param sortDirection DESC for the highest scores first (default), ASC for the lowest.
+     * @param limit The number of students per leaderboard (default 50, at most 1,000).
+     * @param percent An optional share of each class to return instead of a fixed number, at most 1,000 students.
+     * @return A ResponseEntity containing the overall and per-class leaderboards and an HTTP status of OK.
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<LeaderboardResponse> getLeaderboard(@RequestParam(defaultValue = "DESC") String sortDirection,
+                                                              @RequestParam(defaultValue = "50") int limit,
+                                                              @RequestParam(required = false) Double percent) {
+        return new ResponseEntity<>(studentService.getLeaderboard(sortDirection, limit, percent), HttpStatus.OK);
+    }
+
+    /** This method searches students by first and last name and returns the best matches first.
+     * Each word of the query must match a first or last name exactly, as a prefix or with a small typo.
+     * It uses the StudentService, which ranks the matches with the in-memory name index.
+     *
+     * @param q The words to search for, e.g. "jo" or "john smith".
+     * @param limit The maximum number of students to return (default 20, at most 1,000).
+     * @return A ResponseEntity containing the matching Student objects and an HTTP status of OK.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Student>> searchStudents(@RequestParam String q,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        return new ResponseEntity<>(studentService.searchStudents(q, limit), HttpStatus.OK);
+    }
+
+    /** This method streams the student changes since a change version as newline-delimited JSON, one change per
+     * line, written while the rows are read from the database. A client keeps the highest version it has
+     * applied and passes it as since on the next call; without since, or when it is too old, the feed starts
+     * with a RESET line followed by every current student.
+     *
+     * @param since The highest change version the client has applied, if any.
+     * @param response The HttpServletResponse the changes are written to.
+     * @throws IOException If there is an error writing the changes to the response.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamChanges(@RequestParam(required = false) Long since, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (SequenceWriter changes = objectMapper.writerFor(StudentChange.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream())) {
+            studentService.streamChanges(since, change -> {
+                try {
+                    changes.write(change);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     /** This method retrieves students by their class name from the database and returns them in a paginated format.
      * It uses the StudentService to fetch the data based on the provided class name and pagination parameters,
      * and wraps it in a ResponseEntity with an HTTP status of OK.
@@ -59,16 +225,54 @@ public class StudentController {
     }
 
     /** This method updates the information of an existing student in the database based on the provided ID and updated student data.
-     * It uses the StudentService to perform the update operation and returns the updated list of students in the response,
+     * It uses the StudentService to perform the update operation and returns the updated student in the response,
      * wrapped in a ResponseEntity with an HTTP status of OK.
      *
      * @param id The ID of the student to be updated.
      * @param updatedStudent A Student object containing the updated information for the student.
-     * @return A ResponseEntity containing a list of all Student objects after the update operation and an HTTP status of OK.
+     * @return A ResponseEntity containing the updated Student object and an HTTP status of OK.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<List<Student>> editStudent(@PathVariable Long id, @RequestBody Student updatedStudent) {
-        return new ResponseEntity<>(studentService.getAllStudents(), HttpStatus.OK);
+    public ResponseEntity<Student> editStudent(@PathVariable Long id, @RequestBody Student updatedStudent) {
+        return new ResponseEntity<>(studentService.editStudent(id, updatedStudent), HttpStatus.OK);
+    }
+
+    /** This method applies a list of partial updates in batched update statements.
+     * Only the non-null fields of each patch are written.
+     *
+     * @param patches The patches to apply, each identifying its student by studentId.
+     * @return A ResponseEntity containing the number of updated rows and an HTTP status of OK.
+     */
+    @PatchMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkOperationResponse> patchStudents(@RequestBody List<StudentPatch> patches) {
+        return new ResponseEntity<>(studentService.patchStudents(patches.iterator()), HttpStatus.OK);
+    }
+
+    /** This method applies a stream of partial updates sent as newline-delimited JSON, one patch per line.
+     * The request body is read patch by patch while the batches are written, so it is never held in memory.
+     *
+     * @param request The HTTP request whose body contains the NDJSON patches.
+     * @return A ResponseEntity containing the number of updated rows and an HTTP status of OK.
+     * @throws IOException If the request body cannot be read or parsed.
+     */
+    @PatchMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkOperationResponse> patchStudentsStream(HttpServletRequest request) throws IOException {
+        try (MappingIterator<StudentPatch> patches = objectMapper.readerFor(StudentPatch.class)
+                .readValues(request.getInputStream())) {
+            return new ResponseEntity<>(studentService.patchStudents(patches), HttpStatus.OK);
+        }
+    }
+
+    /** This method adds an amount to the score of every student in a class using a single set-based update statement.
+     *
+     * @param className The name of the class whose scores are to be adjusted.
+     * @param delta The amount to add to each score; negative values subtract.
+     * @return A ResponseEntity containing the number of updated rows and an HTTP status of OK.
+     */
+    @PostMapping("/bulk/addToScore")
+    public ResponseEntity<BulkOperationResponse> addToScoreByClassName(@RequestParam String className,
+                                                                       @RequestParam int delta) {
+        return new ResponseEntity<>(studentService.addToScoreByClassName(className, delta), HttpStatus.OK);
     }
 
     /** This method retrieves a paginated and sorted list of students from the database, with optional filtering by class name.
@@ -105,13 +309,32 @@ public class StudentController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
-    /** This method deletes all students from the database. It uses the StudentService to perform the
-     * delete operation and returns an HTTP status of NO_CONTENT in the response.
-     * @return A ResponseEntity with an HTTP status of NO_CONTENT indicating that all students were successfully deleted.
+    /** This method deletes all students from the database. It uses the StudentService to truncate the table
+     * in a single statement and returns the number of deleted rows in the response.
+     * @return A ResponseEntity containing the number of deleted rows and an HTTP status of OK.
      */
     @DeleteMapping
-    public ResponseEntity<Void> deleteAllStudents() {
-        studentService.deleteAllStudents();
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    public ResponseEntity<BulkOperationResponse> deleteAllStudents() {
+        return new ResponseEntity<>(studentService.deleteAllStudents(), HttpStatus.OK);
+    }
+
+    /** This method deletes all students of the given class using a single set-based delete statement.
+     *
+     * @param className The name of the class whose students are to be deleted.
+     * @return A ResponseEntity containing the number of deleted rows and an HTTP status of OK.
+     */
+    @DeleteMapping("/byClassName")
+    public ResponseEntity<BulkOperationResponse> deleteStudentsByClassName(@RequestParam String className) {
+        return new ResponseEntity<>(studentService.deleteStudentsByClassName(className), HttpStatus.OK);
+    }
+
+    /** This method deletes the students with the given IDs in batched delete statements.
+     *
+     * @param ids The IDs of the students to be deleted.
+     * @return A ResponseEntity containing the number of deleted rows and an HTTP status of OK.
+     */
+    @PostMapping("/bulkDelete")
+    public ResponseEntity<BulkOperationResponse> deleteStudentsByIds(@RequestBody List<Long> ids) {
+        return new ResponseEntity<>(studentService.deleteStudentsByIds(ids), HttpStatus.OK);
     }
 }
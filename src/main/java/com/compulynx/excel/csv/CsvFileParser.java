@@ -0,0 +1,331 @@
+package com.compulynx.excel.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses CSV files spooled to disk in parallel. The file is first split into byte ranges of roughly
+ * {@link #DEFAULT_CHUNK_BYTES} that end on a record boundary: a single sequential scan follows the quoting rules
+ * of {@link CsvRecordParser}, skipping eight bytes at a time over words without quotes, so a line break inside a
+ * quoted field is never taken as a boundary and a literal quote inside an unquoted field never opens one.
+ * Each range is then read and parsed by {@link CsvRecordParser} on the fork/join pool, and the results are
+ * merged back in file order.
+ */
+public final class CsvFileParser {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_BYTES = 1024 * 1024;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long QUOTES = 0x2222222222222222L;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /** Scan states: at the start of a field, inside an unquoted field, inside a quoted one, or on a quote in it. */
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    /** A byte range of the file holding whole records. */
+    public record Chunk(long start, long end) {
+        public int length() {
+            return Math.toIntExact(end - start);
+        }
+    }
+
+    /** The records of one chunk, with the absolute file offset just past each record. */
+    record ParsedChunk(List<List<String>> records, long[] recordEnds) {
+    }
+
+    private CsvFileParser() {
+    }
+
+    /** Parses the whole file in parallel and returns its records in file order. */
+    public static List<List<String>> parseAll(Path file) throws IOException {
+        return parseAll(file, DEFAULT_CHUNK_BYTES);
+    }
+
+    public static List<List<String>> parseAll(Path file, int chunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, 0, chunkBytes);
+            ParsedChunk[] parsed = new ParsedChunk[chunks.size()];
+            try {
+                ForkJoinPool.commonPool().invoke(new ParseChunksTask(channel, chunks, parsed, 0, chunks.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (ParsedChunk chunk : parsed) {
+                total += chunk.records().size();
+            }
+            List<List<String>> records = new ArrayList<>(total);
+            for (ParsedChunk chunk : parsed) {
+                records.addAll(chunk.records());
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Opens an iterator over the records of the file starting at the given byte offset, which must be the start
+     * of a record. Chunks are parsed ahead in parallel, at most one per available processor, so memory stays
+     * bounded while the consumer works through the records in file order.
+     */
+    public static RecordIterator open(Path file, long fromOffset) throws IOException {
+        return open(file, fromOffset, DEFAULT_CHUNK_BYTES);
+    }
+
+    static RecordIterator open(Path file, long fromOffset, int chunkBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new RecordIterator(channel, split(channel, fromOffset, chunkBytes), fromOffset,
+                    Runtime.getRuntime().availableProcessors());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the file from the given offset into chunks of about {@code targetChunkBytes} ending on record boundaries.
+     * Only a quote at the start of a field opens a quoted field, as in {@link CsvRecordParser}; a quote inside an
+     * unquoted field or after a closing quote is a literal character and leaves the scan outside quotes.
+     */
+    public static List<Chunk> split(FileChannel channel, long fromOffset, int targetChunkBytes) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        byte[] bytes = buffer.array();
+        int state = FIELD_START;
+        long chunkStart = fromOffset;
+        long boundaryFrom = fromOffset + targetChunkBytes - 1;
+        long offset = fromOffset;
+
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            int i = 0;
+            while (i < read) {
+                // Before the target size only the state matters, so words without quotes are skipped eight bytes
+                // at a time: they leave a quoted field open, and otherwise end in or between unquoted fields
+                int scanTo = (int) Math.max(i, Math.min(read, boundaryFrom - offset));
+                for (; i + Long.BYTES <= scanTo; i += Long.BYTES) {
+                    if (quoteCount((long) LONG_VIEW.get(bytes, i)) != 0) {
+                        for (int j = i; j < i + Long.BYTES; j++) {
+                            state = next(state, bytes[j]);
+                        }
+                    } else if (state != QUOTED) {
+                        state = afterUnquoted(bytes[i + Long.BYTES - 1]);
+                    }
+                }
+                for (; i < scanTo; i++) {
+                    state = next(state, bytes[i]);
+                }
+                // Past the target size the chunk ends at the first line break outside quotes
+                for (; i < read; i++) {
+                    byte b = bytes[i];
+                    state = next(state, b);
+                    if (b == '\n' && state == FIELD_START) {
+                        long boundary = offset + i + 1;
+                        chunks.add(checked(new Chunk(chunkStart, boundary)));
+                        chunkStart = boundary;
+                        boundaryFrom = boundary + targetChunkBytes - 1;
+                        i++;
+                        break;
+                    }
+                }
+            }
+            offset += read;
+        }
+        if (chunkStart < size) {
+            chunks.add(checked(new Chunk(chunkStart, size)));
+        }
+        return chunks;
+    }
+
+    /** The scan state after the byte, following the field rules of {@link CsvRecordParser}. */
+    private static int next(int state, byte b) {
+        return switch (state) {
+            case QUOTED -> b == '"' ? QUOTE_IN_QUOTED : QUOTED;
+            // Either an escaped quote, or the closing quote followed by a delimiter or by kept characters
+            case QUOTE_IN_QUOTED -> b == '"' ? QUOTED : afterUnquoted(b);
+            case FIELD_START -> b == '"' ? QUOTED : afterUnquoted(b);
+            default -> afterUnquoted(b);
+        };
+    }
+
+    /** The scan state after a byte outside quotes: a comma or line break starts the next field. */
+    private static int afterUnquoted(byte b) {
+        return b == ',' || b == '\n' || b == '\r' ? FIELD_START : UNQUOTED;
+    }
+
+    /** Number of '"' bytes in the word, found by turning them into zero bytes and flagging each zero byte exactly. */
+    private static int quoteCount(long word) {
+        long quotesZeroed = word ^ QUOTES;
+        long flags = ~(((quotesZeroed & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | quotesZeroed | LOW_SEVEN_BITS);
+        return Long.bitCount(flags);
+    }
+
+    private static Chunk checked(Chunk chunk) throws IOException {
+        if (chunk.end() - chunk.start() > Integer.MAX_VALUE - 8) {
+            throw new IOException("CSV record spanning offsets " + chunk.start() + "-" + chunk.end() + " is too large");
+        }
+        return chunk;
+    }
+
+    static ParsedChunk parseChunk(FileChannel channel, Chunk chunk) throws IOException {
+        byte[] bytes = new byte[chunk.length()];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, chunk.start() + buffer.position());
+            if (read < 0) {
+                throw new IOException("File ended before offset " + chunk.end());
+            }
+        }
+
+        CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+        List<List<String>> records = new ArrayList<>();
+        long[] ends = new long[Math.max(16, bytes.length / 32)];
+        List<String> record;
+        while ((record = parser.next()) != null) {
+            if (records.size() == ends.length) {
+                ends = Arrays.copyOf(ends, ends.length * 2);
+            }
+            ends[records.size()] = chunk.start() + parser.position();
+            records.add(record);
+        }
+        return new ParsedChunk(records, Arrays.copyOf(ends, records.size()));
+    }
+
+    /** Fork/join task parsing chunks [from, to) into their slots of the result array. */
+    private static final class ParseChunksTask extends RecursiveAction {
+
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+        private final ParsedChunk[] results;
+        private final int from;
+        private final int to;
+
+        ParseChunksTask(FileChannel channel, List<Chunk> chunks, ParsedChunk[] results, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = parseChunk(channel, chunks.get(i));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseChunksTask(channel, chunks, results, from, mid),
+                    new ParseChunksTask(channel, chunks, results, mid, to));
+        }
+    }
+
+    /**
+     * Iterates the records of a file in order while the following chunks are parsed in the background.
+     * {@link #position()} gives the file offset just past the last returned record, which is where a later
+     * parse can resume. Closing the iterator closes the file.
+     */
+    public static final class RecordIterator implements Iterator<List<String>>, AutoCloseable {
+
+        private final FileChannel channel;
+        private final Iterator<Chunk> pendingChunks;
+        private final Deque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
+        private final int lookahead;
+        private List<List<String>> records = Collections.emptyList();
+        private long[] recordEnds = new long[0];
+        private int next;
+        private long position;
+
+        private RecordIterator(FileChannel channel, List<Chunk> chunks, long fromOffset, int lookahead) {
+            this.channel = channel;
+            this.pendingChunks = chunks.iterator();
+            this.lookahead = Math.max(1, lookahead);
+            this.position = fromOffset;
+            fillLookahead();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == records.size()) {
+                ForkJoinTask<ParsedChunk> task = inFlight.poll();
+                if (task == null) {
+                    return false;
+                }
+                ParsedChunk chunk = task.join();
+                records = chunk.records();
+                recordEnds = chunk.recordEnds();
+                next = 0;
+                fillLookahead();
+            }
+            return true;
+        }
+
+        @Override
+        public List<String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            position = recordEnds[next];
+            return records.get(next++);
+        }
+
+        /** The file offset just past the last record returned by {@link #next()}. */
+        public long position() {
+            return position;
+        }
+
+        private void fillLookahead() {
+            while (inFlight.size() < lookahead && pendingChunks.hasNext()) {
+                Chunk chunk = pendingChunks.next();
+                inFlight.add(ForkJoinPool.commonPool().submit(ForkJoinTask.adapt(() -> {
+                    try {
+                        return parseChunk(channel, chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            inFlight.forEach(task -> task.cancel(true));
+            inFlight.clear();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.compulynx.excel.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RFC 4180 record parser working directly on UTF-8 bytes.
+ * Fields are separated by commas and records by LF or CRLF. A field starting with a double quote may contain
+ * commas, line breaks and doubled quotes. Unquoted fields are decoded straight from the input array; only quoted
+ * fields go through a scratch buffer to drop the escape quotes. Blank lines are skipped.
+ * The parser is lenient with malformed input: a quote inside an unquoted field is kept as a literal character,
+ * characters after a closing quote are appended to the field, and an unterminated quote runs to the end of the input.
+ */
+public final class CsvRecordParser {
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final byte[] data;
+    private final int end;
+    private int position;
+    private byte[] scratch = new byte[128];
+
+    /**
+     * @param data  The buffer holding the CSV bytes.
+     * @param start The offset of the first byte to parse; must be the start of a record.
+     * @param end   The offset just past the last byte to parse; must be the end of a record or of the input.
+     */
+    public CsvRecordParser(byte[] data, int start, int end) {
+        this.data = data;
+        this.position = start;
+        this.end = end;
+    }
+
+    /** Offset just past the last record returned by {@link #next()}, i.e. the start of the next record. */
+    public int position() {
+        return position;
+    }
+
+    /** Returns the fields of the next record, or null once the input is exhausted. */
+    public List<String> next() {
+        while (position < end && (data[position] == LF || data[position] == CR)) {
+            position++;
+        }
+        if (position >= end) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>(8);
+        while (true) {
+            if (position < end && data[position] == QUOTE) {
+                fields.add(readQuotedField());
+            } else {
+                fields.add(readUnquotedField());
+            }
+
+            if (position >= end) {
+                return fields;
+            }
+            byte delimiter = data[position++];
+            if (delimiter == LF) {
+                return fields;
+            }
+            if (delimiter == CR) {
+                if (position < end && data[position] == LF) {
+                    position++;
+                }
+                return fields;
+            }
+            // A comma: another field follows, possibly empty at the end of the record
+        }
+    }
+
+    private String readUnquotedField() {
+        int start = position;
+        while (position < end) {
+            byte b = data[position];
+            if (b == COMMA || b == LF || b == CR) {
+                break;
+            }
+            position++;
+        }
+        return new String(data, start, position - start, StandardCharsets.UTF_8);
+    }
+
+    private String readQuotedField() {
+        int length = 0;
+        position++;
+        while (position < end) {
+            byte b = data[position];
+            if (b == QUOTE) {
+                if (position + 1 < end && data[position + 1] == QUOTE) {
+                    length = append(length, QUOTE);
+                    position += 2;
+                    continue;
+                }
+                position++;
+                break;
+            }
+            length = append(length, b);
+            position++;
+        }
+        // Anything between the closing quote and the next delimiter is kept rather than dropped
+        while (position < end) {
+            byte b = data[position];
+            if (b == COMMA || b == LF || b == CR) {
+                break;
+            }
+            length = append(length, b);
+            position++;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int append(int length, byte b) {
+        if (length == scratch.length) {
+            scratch = Arrays.copyOf(scratch, length * 2);
+        }
+        scratch[length] = b;
+        return length + 1;
+    }
+}
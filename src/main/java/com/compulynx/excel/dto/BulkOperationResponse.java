@@ -0,0 +1,15 @@
+package com.compulynx.excel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOperationResponse {
+    String operation;
+    long affectedRows;
+}
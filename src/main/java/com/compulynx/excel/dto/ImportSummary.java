@@ -0,0 +1,16 @@
+package com.compulynx.excel.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ImportSummary {
+    long totalRows;
+    long batches;
+    long skippedBatches;
+    long affectedRows;
+    long rejectedRows;
+    String rejectFileId;
+    long resumedFromRow;
+}
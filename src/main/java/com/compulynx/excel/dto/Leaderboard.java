@@ -0,0 +1,23 @@
+package com.compulynx.excel.dto;
+
+import com.compulynx.excel.entity.Student;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/** The highest or lowest scoring students of one class, or of all classes when className is null. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Leaderboard {
+    String className;
+    /** Number of students with a score the leaderboard was ranked from; only counted for a percent leaderboard. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long scoredStudents;
+    List<Student> students;
+}
@@ -0,0 +1,20 @@
+package com.compulynx.excel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardResponse {
+    /** DESC for the highest scores first, ASC for the lowest. */
+    Sort.Direction sortDirection;
+    Leaderboard overall;
+    List<Leaderboard> classes;
+}
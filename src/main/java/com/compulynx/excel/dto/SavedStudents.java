@@ -0,0 +1,23 @@
+package com.compulynx.excel.dto;
+
+import com.compulynx.excel.entity.Student;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * The students saved from an upload, with the rows that were rejected instead.
+ * rejectFileId is null when no row was rejected.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SavedStudents {
+    List<Student> students;
+    long rejectedRows;
+    String rejectFileId;
+}
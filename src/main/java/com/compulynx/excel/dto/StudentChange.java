@@ -0,0 +1,34 @@
+package com.compulynx.excel.dto;
+
+import com.compulynx.excel.entity.Student;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the student change feed. A client keeps the highest version it has applied and asks for the
+ * changes since that version next time.
+ * <ul>
+ *     <li>RESET: the client must drop its copy; every current student follows as an UPSERT.</li>
+ *     <li>UPSERT: the student was inserted or changed.</li>
+ *     <li>DELETE: the student was deleted.</li>
+ * </ul>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StudentChange {
+    long version;
+    Operation operation;
+    Long studentId;
+    LocalDateTime modifiedAt;
+    Student student;
+
+    public enum Operation { RESET, UPSERT, DELETE }
+}
@@ -0,0 +1,57 @@
+package com.compulynx.excel.dto;
+
+import lombok.Getter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The fields of a student that a streamed student list can be projected to, with their JSON property names and
+ * the columns of the students table they are read from.
+ */
+@Getter
+public enum StudentField {
+    STUDENT_ID("studentId", "student_id"),
+    FIRST_NAME("firstName", "first_name"),
+    LAST_NAME("lastName", "last_name"),
+    DOB("dob", "dob"),
+    CLASS_NAME("className", "class_name"),
+    SCORE("score", "score");
+
+    private final String jsonName;
+    private final String column;
+
+    StudentField(String jsonName, String column) {
+        this.jsonName = jsonName;
+        this.column = column;
+    }
+
+    /**
+     * Parses a comma-separated list of JSON property names, e.g. "studentId,score".
+     *
+     * @return The named fields in declaration order, or every field when the list is null or blank.
+     * @throws IllegalArgumentException If a name is not a student field or the list names none.
+     */
+    public static Set<StudentField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(StudentField.class);
+        }
+        Set<StudentField> parsed = EnumSet.noneOf(StudentField.class);
+        for (String name : fields.split(",")) {
+            parsed.add(fromJsonName(name.trim()));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No student fields in: " + fields);
+        }
+        return parsed;
+    }
+
+    private static StudentField fromJsonName(String name) {
+        for (StudentField field : values()) {
+            if (field.jsonName.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown student field: " + name);
+    }
+}
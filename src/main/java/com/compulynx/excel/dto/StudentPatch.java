@@ -0,0 +1,24 @@
+package com.compulynx.excel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Partial update for one student: only the non-null fields are written, the others keep their current value.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentPatch {
+    Long studentId;
+    String firstName;
+    String lastName;
+    LocalDate dob;
+    String className;
+    Integer score;
+}
@@ -0,0 +1,22 @@
+package com.compulynx.excel.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entry for a batch of rows that an idempotent import has already written.
+ * A batch whose content hash is in the ledger is skipped when the same rows are uploaded again.
+ */
+@Entity
+@Table(name = "student_import_batches")
+@Data
+public class ImportBatch {
+    @Id
+    String batchHash;
+    Integer rowCount;
+    LocalDateTime importedAt;
+}
@@ -0,0 +1,35 @@
+package com.compulynx.excel.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a file import that has not finished yet, keyed by the SHA-256 of the spooled upload.
+ * It is written in the same transaction as each batch, so after a failure or restart the import of the same
+ * file resumes after the last committed row instead of starting over. The checkpoint is deleted once the
+ * import completes.
+ */
+@Entity
+@Table(name = "student_import_checkpoints")
+@Data
+public class ImportCheckpoint {
+    @Id
+    String fileHash;
+    String fileName;
+    /** Number of rows of the file, header included, that were committed or rejected. */
+    Long lastCommittedRow;
+    /** Byte offset just past the last committed row, or -1 if the file format cannot be read from an offset. */
+    Long byteOffset;
+    Long batches;
+    Long skippedBatches;
+    Long affectedRows;
+    Long rejectedRows;
+    String rejectFileId;
+    Long rejectFileBytes;
+    LocalDateTime startedAt;
+    LocalDateTime updatedAt;
+}
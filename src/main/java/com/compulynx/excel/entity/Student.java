@@ -1,13 +1,19 @@
 package com.compulynx.excel.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 @Entity
-@Table(name = "students")
+@Table(name = "students", indexes = {
+        @Index(name = "idx_students_change_version", columnList = "change_version"),
+        @Index(name = "idx_students_class_name_score", columnList = "class_name, score"),
+        @Index(name = "idx_students_score", columnList = "score")})
 @Data
 public class Student {
     @Id
@@ -18,5 +24,10 @@ public class Student {
     String className;
     Integer score;
 
+    /** Version of the write that last inserted or changed the student, see {@link StudentChangeClock}. */
+    @JsonIgnore
+    Long changeVersion;
+    @JsonIgnore
+    LocalDateTime lastModified;
 
 }
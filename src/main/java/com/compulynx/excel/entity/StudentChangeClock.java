@@ -0,0 +1,23 @@
+package com.compulynx.excel.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Single-row counter that hands out the change versions of the students table. Every writing transaction
+ * increments it first and holds the row lock until it commits, so versions become visible in increasing order
+ * and a reader that has seen version v has seen every change up to v.
+ */
+@Entity
+@Table(name = "student_change_clock")
+@Data
+public class StudentChangeClock {
+    @Id
+    Integer id;
+    /** The last version handed out. */
+    Long version;
+    /** The version of the last delete of every student; changes before it are no longer available. */
+    Long resetVersion;
+}
@@ -0,0 +1,24 @@
+package com.compulynx.excel.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind by a deleted student, so the change feed can report the delete.
+ * Deleting a student again, after it was re-inserted, overwrites the marker with the newer version.
+ */
+@Entity
+@Table(name = "student_tombstones", indexes = @Index(name = "idx_student_tombstones_change_version",
+        columnList = "change_version"))
+@Data
+public class StudentTombstone {
+    @Id
+    Long studentId;
+    Long changeVersion;
+    LocalDateTime deletedAt;
+}
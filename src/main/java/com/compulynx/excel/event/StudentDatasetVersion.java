@@ -0,0 +1,34 @@
+package com.compulynx.excel.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the students table as seen by this process, bumped once every write path has committed.
+ * Anything derived from the whole table, such as an export file, can be tagged with {@link #current()} and
+ * reused for as long as the version does not change. The tag starts with the startup time of the process,
+ * so tags handed out before a restart never match the ones handed out after it.
+ */
+@Component
+public class StudentDatasetVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    /** The current version, e.g. {@code lx3k9c2a-17}. */
+    public String current() {
+        return epoch + "-" + version.get();
+    }
+
+    /**
+     * Bumps the version after the write is committed, so a reader that sees the new version also sees the
+     * new rows. A reader that sees the old version may already read the new rows, which only makes a cached
+     * copy fresher than its tag.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void bumpAfterCommit(StudentsChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
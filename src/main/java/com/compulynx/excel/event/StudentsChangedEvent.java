@@ -0,0 +1,36 @@
+package com.compulynx.excel.event;
+
+import com.compulynx.excel.entity.Student;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by the student write paths so that in-memory indexes and caches derived from the
+ * students table can invalidate or update themselves.
+ *
+ * @param scope      ROWS when the affected students are listed, BULK when a set-based statement changed an unknown set of rows,
+ *                   IMPORT when an idempotent import upserted an unknown set of rows.
+ * @param saved      The students that were inserted or updated (empty for BULK and deletes).
+ * @param deletedIds The IDs of the students that were deleted (empty for BULK and saves).
+ */
+public record StudentsChangedEvent(Scope scope, List<Student> saved, Collection<Long> deletedIds) {
+
+    public enum Scope { ROWS, BULK, IMPORT }
+
+    public static StudentsChangedEvent saved(List<Student> students) {
+        return new StudentsChangedEvent(Scope.ROWS, students, List.of());
+    }
+
+    public static StudentsChangedEvent deleted(Collection<Long> studentIds) {
+        return new StudentsChangedEvent(Scope.ROWS, List.of(), studentIds);
+    }
+
+    public static StudentsChangedEvent bulk() {
+        return new StudentsChangedEvent(Scope.BULK, List.of(), List.of());
+    }
+
+    public static StudentsChangedEvent imported() {
+        return new StudentsChangedEvent(Scope.IMPORT, List.of(), List.of());
+    }
+}
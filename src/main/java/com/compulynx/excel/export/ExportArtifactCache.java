@@ -0,0 +1,245 @@
+package com.compulynx.excel.export;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.event.StudentDatasetVersion;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of generated export files, kept in the export-cache folder of the data processing directory.
+ * A file is keyed by its format, its filter and the {@link StudentDatasetVersion} it was generated at, so it is
+ * served again until the next committed write. Files of older versions can never be served again and are
+ * deleted whenever a new file is generated; the rest are evicted least recently used first once the folder
+ * grows over {@code exports.cache.max-bytes}; a limit of 0 disables the reuse.
+ * Exports are only cached by the process that generated them: writes made by other instances or directly in the
+ * database do not change the version.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExportArtifactCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportArtifactCache.class);
+    private static final String PREFIX = "export-";
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final DataProcessingDirectory dataProcessingDirectory;
+    private final StudentDatasetVersion datasetVersion;
+    private final PipelineMetrics metrics;
+
+    @Value("${exports.cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    /** One lock per file name, so concurrent requests for the same export generate it once. */
+    private final Map<String, Object> generating = new ConcurrentHashMap<>();
+
+    /**
+     * @param format  The file extension of the export, e.g. csv.
+     * @param filter  The filter the export was generated with, or null for the whole table.
+     * @param version The dataset version the export reflects.
+     */
+    public record Key(String format, String filter, String version) {
+
+        /** A strong entity tag; it only changes when the format, the filter or the data changes. */
+        public String etag() {
+            return "\"" + format + "-" + filterId() + "-" + version + "\"";
+        }
+
+        String fileName() {
+            return PREFIX + format + "-" + filterId() + "-" + version + "." + format;
+        }
+
+        private String filterId() {
+            return filter == null ? "all" : UUID.nameUUIDFromBytes(filter.getBytes(StandardCharsets.UTF_8)).toString();
+        }
+    }
+
+    /**
+     * A cached file opened for reading, so a later eviction cannot take it away while it is being sent.
+     *
+     * @param channel The open file; closing the artifact closes it.
+     * @param size    The size of the file in bytes.
+     * @param etag    The entity tag of the file.
+     */
+    public record Artifact(FileChannel channel, long size, String etag) implements AutoCloseable {
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private record CachedFile(Path file, FileTime lastUsed, long size) {
+    }
+
+    /** Writes an export to the given stream. */
+    @FunctionalInterface
+    public interface Generator {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /** Whether exports are reused; with {@code exports.cache.max-bytes=0} every request generates its export. */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /** Returns the key of an export at the current dataset version; its etag is known before the file exists. */
+    public Key key(String format, String filter) {
+        return new Key(format, filter == null || filter.isBlank() ? null : filter, datasetVersion.current());
+    }
+
+    /**
+     * Returns the cached file of the key, generating it first if it is missing. The generator writes to a
+     * temporary file that is moved in place once complete, so a partially written export is never served.
+     *
+     * @param key       The key returned by {@link #key}.
+     * @param generator Writes the export; it is only called on a cache miss.
+     * @return The cached file, open for reading; the caller closes it.
+     * @throws IOException If the export cannot be generated or written.
+     */
+    public Artifact get(Key key, Generator generator) throws IOException {
+        Path file = cacheDir().resolve(key.fileName());
+        FileChannel channel;
+        Object lock = generating.computeIfAbsent(key.fileName(), name -> new Object());
+        synchronized (lock) {
+            try {
+                channel = isEnabled() ? openIfExists(file) : null;
+                if (channel != null) {
+                    metrics.recordCacheLookup("export", true);
+                    touch(file);
+                    return new Artifact(channel, channel.size(), key.etag());
+                }
+                metrics.recordCacheLookup("export", false);
+                generate(file, generator);
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            } finally {
+                generating.remove(key.fileName(), lock);
+            }
+        }
+        evict(file);
+        return new Artifact(channel, channel.size(), key.etag());
+    }
+
+    /** Deletes the exports of a previous run: their versions are never handed out again. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void clearOnStartup() {
+        try (Stream<Path> files = Files.list(cacheDir())) {
+            files.filter(ExportArtifactCache::isCacheFile).forEach(ExportArtifactCache::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clear the export cache: {}", e.getMessage());
+        }
+    }
+
+    private void generate(Path file, Generator generator) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + "-" + UUID.randomUUID() + PARTIAL_SUFFIX);
+        try {
+            metrics.time("export.cache", "generate", () -> {
+                try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                    generator.writeTo(outputStream);
+                }
+                return null;
+            });
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+    }
+
+    /** Deletes the files of other versions, then the least recently used files until the cache fits. */
+    private void evict(Path keep) {
+        String version = "-" + datasetVersion.current() + ".";
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listed = Files.list(cacheDir())) {
+            listed.filter(ExportArtifactCache::isCacheFile).forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Could not list the export cache: {}", e.getMessage());
+            return;
+        }
+
+        List<CachedFile> current = new ArrayList<>();
+        long totalBytes = 0;
+        for (Path file : files) {
+            if (!file.equals(keep) && !file.getFileName().toString().contains(version)) {
+                deleteQuietly(file);
+                continue;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                current.add(new CachedFile(file, attributes.lastModifiedTime(), attributes.size()));
+                totalBytes += attributes.size();
+            } catch (IOException e) {
+                // Deleted by a concurrent eviction
+            }
+        }
+
+        current.sort(Comparator.comparing(CachedFile::lastUsed));
+        for (int i = 0; i < current.size() && totalBytes > maxBytes; i++) {
+            CachedFile cached = current.get(i);
+            if (!cached.file().equals(keep) && deleteQuietly(cached.file())) {
+                totalBytes -= cached.size();
+            }
+        }
+    }
+
+    private Path cacheDir() throws IOException {
+        return Files.createDirectories(dataProcessingDirectory.resolve("export-cache"));
+    }
+
+    private static FileChannel openIfExists(Path file) throws IOException {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /** The modification time doubles as the last access time for the eviction order. */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted meanwhile; the open channel still reads it
+        }
+    }
+
+    private static boolean isCacheFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && !name.endsWith(PARTIAL_SUFFIX);
+    }
+
+    /** Deletes a file; a file still being sent cannot be deleted on Windows and is left for the next eviction. */
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not evict {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.compulynx.excel.index;
+
+/**
+ * Stable merge sort over an array of row positions, comparing rows through a primitive comparator.
+ * Sorting positions instead of objects keeps the index columns unboxed while they are being ordered.
+ */
+final class PositionSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    @FunctionalInterface
+    interface PositionComparator {
+        int compare(int left, int right);
+    }
+
+    private PositionSort() {
+    }
+
+    static void sort(int[] positions, PositionComparator comparator) {
+        int[] buffer = positions.clone();
+        mergeSort(buffer, positions, 0, positions.length, comparator);
+    }
+
+    /** Sorts source[from, to) into target[from, to); both arrays hold the same positions on entry. */
+    private static void mergeSort(int[] source, int[] target, int from, int to, PositionComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(target, from, to, comparator);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(target, source, from, mid, comparator);
+        mergeSort(target, source, mid, to, comparator);
+
+        if (comparator.compare(source[mid - 1], source[mid]) <= 0) {
+            System.arraycopy(source, from, target, from, to - from);
+            return;
+        }
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && comparator.compare(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(int[] positions, int from, int to, PositionComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            int current = positions[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(positions[j], current) > 0) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = current;
+        }
+    }
+}
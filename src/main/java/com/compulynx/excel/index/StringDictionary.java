@@ -0,0 +1,59 @@
+package com.compulynx.excel.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns. Each distinct value is stored once and rows
+ * only keep its int code, so ten million rows sharing a few thousand names cost four bytes each.
+ * A null value is encoded as {@link #NULL_CODE}.
+ */
+public final class StringDictionary {
+
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /** Returns the code for the given value, adding it to the dictionary if it has not been seen before. */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /** Returns the code for the given value, or {@link #NULL_CODE} if it is not in the dictionary. */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /** Rough heap estimate of the dictionary: the strings plus the hash map entries pointing at them. */
+    long footprintBytes() {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += 40 + value.length() + 48;
+        }
+        return bytes;
+    }
+}
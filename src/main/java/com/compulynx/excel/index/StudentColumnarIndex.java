@@ -0,0 +1,251 @@
+package com.compulynx.excel.index;
+
+import com.compulynx.excel.entity.Student;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+
+/**
+ * Read-only, column oriented snapshot of the students table.
+ * Every column is a primitive array (ids, scores, dates as epoch days, dictionary codes for the strings),
+ * so a row costs a few dozen bytes instead of a Student entity with its boxed fields and strings.
+ * Rows are kept sorted by student id for binary-search lookups, and a second permutation sorted by score
+ * answers score range queries without scanning the whole roster.
+ */
+public final class StudentColumnarIndex {
+
+    /** Marker stored in the int columns when the entity field is null. */
+    static final int NULL_INT = Integer.MIN_VALUE;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] scores;
+    private final int[] dobEpochDays;
+    private final int[] classNameCodes;
+    private final int[] firstNameCodes;
+    private final int[] lastNameCodes;
+    private final int[] scoreOrder;
+    private final StringDictionary classNames;
+    private final StringDictionary names;
+
+    private StudentColumnarIndex(Builder builder) {
+        this.size = builder.size;
+        this.classNames = builder.classNames;
+        this.names = builder.names;
+
+        // Rows streamed in id order are used as they are, otherwise every column is rewritten in id order
+        int[] idOrder = null;
+        if (!builder.sortedById) {
+            long[] keys = builder.ids;
+            idOrder = identity(size);
+            PositionSort.sort(idOrder, (a, b) -> Long.compare(keys[a], keys[b]));
+        }
+        this.ids = permute(builder.ids, idOrder);
+        this.scores = permute(builder.scores, idOrder);
+        this.dobEpochDays = permute(builder.dobEpochDays, idOrder);
+        this.classNameCodes = permute(builder.classNameCodes, idOrder);
+        this.firstNameCodes = permute(builder.firstNameCodes, idOrder);
+        this.lastNameCodes = permute(builder.lastNameCodes, idOrder);
+        for (int i = 1; i < size; i++) {
+            if (ids[i - 1] == ids[i]) {
+                throw new IllegalStateException("Duplicate student id in index: " + ids[i]);
+            }
+        }
+
+        // Stable sort, so rows with the same score stay in id order
+        this.scoreOrder = identity(size);
+        int[] sortedScores = this.scores;
+        PositionSort.sort(scoreOrder, (a, b) -> Integer.compare(sortedScores[a], sortedScores[b]));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks a student up by id with a binary search over the sorted id column.
+     *
+     * @param id The ID of the student to be retrieved.
+     * @return The student rebuilt from the columns, or an empty Optional if the id is not indexed.
+     */
+    public Optional<Student> findById(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position < 0 ? Optional.empty() : Optional.of(toStudent(position));
+    }
+
+    /**
+     * Returns the students whose score lies within the given inclusive range, ordered by score and then by id.
+     * Students without a score are never returned.
+     */
+    public List<Student> findByScoreBetween(int minScore, int maxScore) {
+        return findByScoreBetween(minScore, maxScore, id -> false);
+    }
+
+    /**
+     * Returns the students whose score lies within the given inclusive range, ordered by score and then by id,
+     * leaving out the students whose rows are superseded elsewhere.
+     *
+     * @param excluded Tells which student ids to leave out.
+     */
+    public List<Student> findByScoreBetween(int minScore, int maxScore, LongPredicate excluded) {
+        List<Student> students = new ArrayList<>();
+        if (minScore > maxScore) {
+            return students;
+        }
+        int from = lowerBound(Math.max(minScore, NULL_INT + 1));
+        for (int i = from; i < size && scores[scoreOrder[i]] <= maxScore; i++) {
+            if (!excluded.test(ids[scoreOrder[i]])) {
+                students.add(toStudent(scoreOrder[i]));
+            }
+        }
+        return students;
+    }
+
+    /** Returns the number of students whose score lies within the given inclusive range. */
+    public int countByScoreBetween(int minScore, int maxScore) {
+        if (minScore > maxScore) {
+            return 0;
+        }
+        int from = lowerBound(Math.max(minScore, NULL_INT + 1));
+        int to = maxScore == Integer.MAX_VALUE ? size : lowerBound(maxScore + 1);
+        return to - from;
+    }
+
+    /** Approximate heap used by the columns and dictionaries of this index. */
+    public long footprintBytes() {
+        return (long) ids.length * Long.BYTES
+                + (long) (scores.length + dobEpochDays.length + classNameCodes.length
+                + firstNameCodes.length + lastNameCodes.length + scoreOrder.length) * Integer.BYTES
+                + classNames.footprintBytes()
+                + names.footprintBytes();
+    }
+
+    /** First position in the score order whose score is greater than or equal to the given score. */
+    private int lowerBound(int score) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (scores[scoreOrder[mid]] < score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Student toStudent(int position) {
+        Student student = new Student();
+        student.setStudentId(ids[position]);
+        student.setFirstName(names.decode(firstNameCodes[position]));
+        student.setLastName(names.decode(lastNameCodes[position]));
+        student.setDob(dobEpochDays[position] == NULL_INT ? null : LocalDate.ofEpochDay(dobEpochDays[position]));
+        student.setClassName(classNames.decode(classNameCodes[position]));
+        student.setScore(scores[position] == NULL_INT ? null : scores[position]);
+        return student;
+    }
+
+    private static int[] identity(int size) {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    private static long[] permute(long[] column, int[] order) {
+        if (order == null) {
+            return column;
+        }
+        long[] result = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    private static int[] permute(int[] column, int[] order) {
+        if (order == null) {
+            return column;
+        }
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Appends rows into growable primitive columns. Rows may arrive in any order,
+     * although streaming them in id order lets {@link #build()} skip the id sort.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private int size;
+        private boolean sortedById = true;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] scores = new int[INITIAL_CAPACITY];
+        private int[] dobEpochDays = new int[INITIAL_CAPACITY];
+        private int[] classNameCodes = new int[INITIAL_CAPACITY];
+        private int[] firstNameCodes = new int[INITIAL_CAPACITY];
+        private int[] lastNameCodes = new int[INITIAL_CAPACITY];
+        private final StringDictionary classNames = new StringDictionary();
+        private final StringDictionary names = new StringDictionary();
+
+        private Builder() {
+        }
+
+        public Builder add(Student student) {
+            return add(student.getStudentId(), student.getFirstName(), student.getLastName(), student.getDob(),
+                    student.getClassName(), student.getScore());
+        }
+
+        public Builder add(long id, String firstName, String lastName, LocalDate dob, String className, Integer score) {
+            if (size == ids.length) {
+                grow();
+            }
+            if (size > 0 && ids[size - 1] >= id) {
+                sortedById = false;
+            }
+            ids[size] = id;
+            scores[size] = score == null ? NULL_INT : score;
+            dobEpochDays[size] = dob == null ? NULL_INT : Math.toIntExact(dob.toEpochDay());
+            classNameCodes[size] = classNames.encode(className);
+            firstNameCodes[size] = names.encode(firstName);
+            lastNameCodes[size] = names.encode(lastName);
+            size++;
+            return this;
+        }
+
+        public StudentColumnarIndex build() {
+            ids = Arrays.copyOf(ids, size);
+            scores = Arrays.copyOf(scores, size);
+            dobEpochDays = Arrays.copyOf(dobEpochDays, size);
+            classNameCodes = Arrays.copyOf(classNameCodes, size);
+            firstNameCodes = Arrays.copyOf(firstNameCodes, size);
+            lastNameCodes = Arrays.copyOf(lastNameCodes, size);
+            return new StudentColumnarIndex(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            dobEpochDays = Arrays.copyOf(dobEpochDays, capacity);
+            classNameCodes = Arrays.copyOf(classNameCodes, capacity);
+            firstNameCodes = Arrays.copyOf(firstNameCodes, capacity);
+            lastNameCodes = Arrays.copyOf(lastNameCodes, capacity);
+        }
+    }
+}
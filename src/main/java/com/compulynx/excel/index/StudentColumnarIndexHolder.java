@@ -0,0 +1,266 @@
+package com.compulynx.excel.index;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.repository.StudentRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Owns the current {@link StudentColumnarIndex} snapshot when {@code students.index.enabled} is set.
+ * The snapshot is built by streaming the students table at startup. Saves and deletes of listed students are
+ * kept in a small overlay that is read next to the snapshot once they are committed; while such a write is in
+ * flight its students are read from the database. Bulk statements, imports and a full overlay trigger a
+ * background rebuild, during which callers read from the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentColumnarIndexHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentColumnarIndexHolder.class);
+    private static final int OVERLAY_LIMIT = 5_000;
+    private static final Comparator<Student> SCORE_ORDER = Comparator
+            .comparing(Student::getScore)
+            .thenComparing(Student::getStudentId);
+
+    private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${students.index.enabled:false}")
+    private boolean enabled;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "student-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final Map<Long, Change> overlay = new ConcurrentHashMap<>();
+    /** Students written by transactions that have not completed yet, with the number of such transactions. */
+    private final Map<Long, Integer> uncommitted = new ConcurrentHashMap<>();
+    private volatile StudentColumnarIndex index;
+
+    /**
+     * A committed change to one student, newer than the snapshot.
+     *
+     * @param sequence Orders the change against the start of a rebuild.
+     * @param student  The committed row, null once the student is deleted.
+     */
+    private record Change(long sequence, Student student) {
+    }
+
+    /**
+     * Looks a student up in the overlay and the snapshot.
+     *
+     * @return The student, or an empty Optional if there is no snapshot, the student is being written,
+     *         or it is not indexed.
+     */
+    public Optional<Student> findById(long id) {
+        StudentColumnarIndex snapshot = index;
+        if (snapshot == null || uncommitted.containsKey(id)) {
+            return Optional.empty();
+        }
+        Change change = overlay.get(id);
+        if (change != null) {
+            return Optional.ofNullable(change.student()).map(StudentColumnarIndexHolder::copy);
+        }
+        return snapshot.findById(id);
+    }
+
+    /**
+     * Returns the students whose score lies within the given inclusive range, ordered by score and then by id.
+     *
+     * @return The students, or an empty Optional if there is no snapshot or a write of listed students is in flight.
+     */
+    public Optional<List<Student>> findByScoreBetween(int minScore, int maxScore) {
+        StudentColumnarIndex snapshot = index;
+        if (snapshot == null || !uncommitted.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Student> students = snapshot.findByScoreBetween(minScore, maxScore, overlay::containsKey);
+        List<Student> changed = new ArrayList<>();
+        overlay.values().forEach(change -> {
+            Student student = change.student();
+            if (student != null && student.getScore() != null
+                    && student.getScore() >= minScore && student.getScore() <= maxScore) {
+                changed.add(copy(student));
+            }
+        });
+        if (!changed.isEmpty()) {
+            students.addAll(changed);
+            students.sort(SCORE_ORDER);
+        }
+        return Optional.of(students);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Runs inside the writing transaction. Listed students are read from the database until the write completes;
+     * any other write drops the snapshot, so reads inside the writing transaction never see stale rows.
+     */
+    @EventListener
+    public void beforeCommit(StudentsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (isListed(event)) {
+            studentIds(event).forEach(id -> uncommitted.merge(id, 1, Integer::sum));
+        } else {
+            generation.incrementAndGet();
+            index = null;
+        }
+    }
+
+    /**
+     * Moves committed saves and deletes of listed students into the overlay; other writes are followed by a
+     * rebuild, and rebuilds that started before the commit are discarded.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterCommit(StudentsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!isListed(event)) {
+            generation.incrementAndGet();
+            scheduleRebuild();
+            return;
+        }
+        for (Student student : event.saved()) {
+            overlay.put(student.getStudentId(), new Change(changeSequence.incrementAndGet(), copy(student)));
+        }
+        for (Long studentId : event.deletedIds()) {
+            overlay.put(studentId, new Change(changeSequence.incrementAndGet(), null));
+        }
+        completed(event);
+        if (overlay.size() > OVERLAY_LIMIT) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Listed students are read from the snapshot again. Any other write dropped the snapshot before it rolled back,
+     * so it is rebuilt as after a commit, or every read would go to the database until the next write.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void afterRollback(StudentsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (isListed(event)) {
+            completed(event);
+        } else {
+            generation.incrementAndGet();
+            scheduleRebuild();
+        }
+    }
+
+    private static boolean isListed(StudentsChangedEvent event) {
+        return event.scope() == StudentsChangedEvent.Scope.ROWS
+                && event.saved().size() + event.deletedIds().size() <= OVERLAY_LIMIT;
+    }
+
+    private void completed(StudentsChangedEvent event) {
+        studentIds(event).forEach(id -> uncommitted.computeIfPresent(id,
+                (key, count) -> count == 1 ? null : count - 1));
+    }
+
+    private static Stream<Long> studentIds(StudentsChangedEvent event) {
+        return Stream.concat(event.saved().stream().map(Student::getStudentId), event.deletedIds().stream());
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildWhilePending);
+        }
+    }
+
+    private void rebuildWhilePending() {
+        while (rebuildPending.getAndSet(false)) {
+            long startGeneration = generation.get();
+            // Changes recorded before the read transaction starts are committed, so the new snapshot holds them
+            long startSequence = changeSequence.get();
+            try {
+                StudentColumnarIndex rebuilt = build();
+                if (generation.get() == startGeneration) {
+                    index = rebuilt;
+                    overlay.values().removeIf(change -> change.sequence() <= startSequence);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to build the student columnar index", e);
+            }
+        }
+    }
+
+    /** Streams the students table in id order into a new index, detaching every entity once it is copied. */
+    private StudentColumnarIndex build() {
+        long started = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        StudentColumnarIndex built = transaction.execute(status -> {
+            StudentColumnarIndex.Builder builder = StudentColumnarIndex.builder();
+            try (Stream<Student> students = studentRepository.streamAllOrderedById()) {
+                students.forEach(student -> {
+                    builder.add(student);
+                    entityManager.detach(student);
+                });
+            }
+            return builder.build();
+        });
+        log.info("Student columnar index built with {} rows ({} bytes) in {} ms", built.size(),
+                built.footprintBytes(), (System.nanoTime() - started) / 1_000_000);
+        return built;
+    }
+
+    /** Copies the indexed fields, so callers never share an overlay row or hold on to a saved entity. */
+    private static Student copy(Student student) {
+        Student copy = new Student();
+        copy.setStudentId(student.getStudentId());
+        copy.setFirstName(student.getFirstName());
+        copy.setLastName(student.getLastName());
+        copy.setDob(student.getDob());
+        copy.setClassName(student.getClassName());
+        copy.setScore(student.getScore());
+        return copy;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,561 @@
+package com.compulynx.excel.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * Read-only search index over the first and last names of the students.
+ * The distinct names are kept once, lower-cased and sorted, so the names starting with a prefix form one
+ * contiguous range found by binary search. Each name points to a posting list of the rows that carry it, and
+ * rows are kept in id order, so every posting list is sorted by student id. Fuzzy matches are found through
+ * trigram posting lists over the distinct names and confirmed with a bounded edit distance.
+ * All lists are slices of flat int arrays; a row costs 24 bytes whatever the length of the names.
+ */
+public final class StudentNameIndex {
+
+    /** Match tiers, best first. A fuzzy match at edit distance d has the tier PREFIX + d. */
+    public static final int EXACT = 0;
+    public static final int PREFIX = 1;
+    public static final int NO_MATCH = -1;
+
+    private static final char GRAM_START = '\u0002';
+    private static final char GRAM_END = '\u0003';
+
+    private final int size;
+    private final long[] ids;
+    private final int[] firstNameCodes;
+    private final int[] lastNameCodes;
+    private final String[] names;
+    private final int[] postingStarts;
+    private final int[] postings;
+    private final long[] gramKeys;
+    private final int[] gramStarts;
+    private final int[] gramNames;
+
+    /**
+     * @param studentId The id of the matching student.
+     * @param tier      How well the first word of the query matched: EXACT, PREFIX or PREFIX + edit distance.
+     */
+    public record Match(long studentId, int tier) {
+    }
+
+    private StudentNameIndex(Builder builder) {
+        this.size = builder.size;
+
+        // Renumber the dictionary codes so that code order is name order
+        int nameCount = builder.names.size();
+        String[] unsorted = new String[nameCount];
+        for (int code = 0; code < nameCount; code++) {
+            unsorted[code] = builder.names.decode(code);
+        }
+        int[] nameOrder = identity(nameCount);
+        PositionSort.sort(nameOrder, (a, b) -> unsorted[a].compareTo(unsorted[b]));
+        this.names = new String[nameCount];
+        int[] renumbered = new int[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            names[i] = unsorted[nameOrder[i]];
+            renumbered[nameOrder[i]] = i;
+        }
+
+        int[] idOrder = identity(size);
+        if (!builder.sortedById) {
+            long[] keys = builder.ids;
+            PositionSort.sort(idOrder, (a, b) -> Long.compare(keys[a], keys[b]));
+        }
+        this.ids = new long[size];
+        this.firstNameCodes = new int[size];
+        this.lastNameCodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            int row = idOrder[i];
+            ids[i] = builder.ids[row];
+            firstNameCodes[i] = recode(builder.firstNameCodes[row], renumbered);
+            lastNameCodes[i] = recode(builder.lastNameCodes[row], renumbered);
+            if (i > 0 && ids[i - 1] == ids[i]) {
+                throw new IllegalStateException("Duplicate student id in name index: " + ids[i]);
+            }
+        }
+
+        // Posting lists: rows are visited in id order, so each list comes out sorted by id
+        this.postingStarts = new int[nameCount + 1];
+        for (int row = 0; row < size; row++) {
+            forEachName(row, code -> postingStarts[code + 1]++);
+        }
+        for (int code = 0; code < nameCount; code++) {
+            postingStarts[code + 1] += postingStarts[code];
+        }
+        this.postings = new int[postingStarts[nameCount]];
+        int[] next = Arrays.copyOf(postingStarts, nameCount);
+        for (int row = 0; row < size; row++) {
+            int position = row;
+            forEachName(row, code -> postings[next[code]++] = position);
+        }
+
+        // Trigram posting lists over the distinct names
+        List<long[]> gramsByName = new ArrayList<>(nameCount);
+        int pairCount = 0;
+        for (String name : names) {
+            long[] grams = grams(name);
+            gramsByName.add(grams);
+            pairCount += grams.length;
+        }
+        long[] pairKeys = new long[pairCount];
+        int[] pairNames = new int[pairCount];
+        int pair = 0;
+        for (int code = 0; code < nameCount; code++) {
+            for (long gram : gramsByName.get(code)) {
+                pairKeys[pair] = gram;
+                pairNames[pair++] = code;
+            }
+        }
+        int[] pairOrder = identity(pairCount);
+        PositionSort.sort(pairOrder, (a, b) -> Long.compare(pairKeys[a], pairKeys[b]));
+
+        int distinctGrams = 0;
+        for (int i = 0; i < pairCount; i++) {
+            if (i == 0 || pairKeys[pairOrder[i]] != pairKeys[pairOrder[i - 1]]) {
+                distinctGrams++;
+            }
+        }
+        this.gramKeys = new long[distinctGrams];
+        this.gramStarts = new int[distinctGrams + 1];
+        this.gramNames = new int[pairCount];
+        int gram = -1;
+        for (int i = 0; i < pairCount; i++) {
+            if (i == 0 || pairKeys[pairOrder[i]] != pairKeys[pairOrder[i - 1]]) {
+                gramKeys[++gram] = pairKeys[pairOrder[i]];
+                gramStarts[gram] = i;
+            }
+            // The stable sort keeps the name codes of one trigram ascending
+            gramNames[i] = pairNames[pairOrder[i]];
+        }
+        gramStarts[distinctGrams] = pairCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the students whose names match every word of the query. The first word ranks the results: students
+     * with a name equal to it come first, then names starting with it, then names within an edit distance of
+     * one (words of three to five letters) or two (longer words). Every other word must match the first or last
+     * name of the student in one of those ways. Students of the same tier are ordered by id.
+     *
+     * @param query    The words to look for, in any case.
+     * @param limit    The maximum number of matches to return.
+     * @param excluded Students to leave out, e.g. the ones whose names changed after the index was built.
+     * @return The best matches, at most limit of them.
+     */
+    public List<Match> search(String query, int limit, LongPredicate excluded) {
+        String[] words = tokenize(query);
+        List<Match> matches = new ArrayList<>(Math.min(limit, 100));
+        if (words.length == 0 || limit <= 0) {
+            return matches;
+        }
+        if (words.length > 1) {
+            return searchAll(words, limit, excluded, matches);
+        }
+
+        String word = words[0];
+        int from = lowerBound(word);
+        int to = prefixEnd(word, from);
+        boolean exact = from < to && names[from].equals(word);
+        if (exact) {
+            collect(new int[]{from}, 1, EXACT, excluded, limit, matches);
+        }
+        int firstPrefix = exact ? from + 1 : from;
+        int[] prefixCodes = new int[to - firstPrefix];
+        for (int code = firstPrefix; code < to; code++) {
+            prefixCodes[code - firstPrefix] = code;
+        }
+        collect(prefixCodes, prefixCodes.length, PREFIX, excluded, limit, matches);
+
+        int maxDistance = maxDistance(word);
+        if (maxDistance > 0 && matches.size() < limit) {
+            byte[] tiers = new byte[names.length];
+            Arrays.fill(tiers, (byte) NO_MATCH);
+            fuzzyTiers(word, maxDistance, from, to, tiers);
+            int[] codes = new int[names.length];
+            for (int distance = 1; distance <= maxDistance; distance++) {
+                int count = 0;
+                for (int code = 0; code < names.length; code++) {
+                    if (tiers[code] == PREFIX + distance) {
+                        codes[count++] = code;
+                    }
+                }
+                collect(codes, count, PREFIX + distance, excluded, limit, matches);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Searches with several words. The rows are read from the posting lists of the word matching the fewest
+     * rows, in id order, and bucketed by how well the first word matches them; the walk stops once the best
+     * bucket is full.
+     */
+    private List<Match> searchAll(String[] words, int limit, LongPredicate excluded, List<Match> matches) {
+        byte[][] tiers = new byte[words.length][];
+        int driver = 0;
+        long fewestRows = Long.MAX_VALUE;
+        for (int i = 0; i < words.length; i++) {
+            tiers[i] = nameTiers(words[i]);
+            long rows = 0;
+            for (int code = 0; code < names.length; code++) {
+                if (tiers[i][code] != NO_MATCH) {
+                    rows += postingStarts[code + 1] - postingStarts[code];
+                }
+            }
+            if (rows < fewestRows) {
+                fewestRows = rows;
+                driver = i;
+            }
+        }
+        int[] codes = new int[names.length];
+        int count = 0;
+        for (int code = 0; code < names.length; code++) {
+            if (tiers[driver][code] != NO_MATCH) {
+                codes[count++] = code;
+            }
+        }
+
+        List<List<Match>> buckets = new ArrayList<>();
+        for (int tier = EXACT; tier <= PREFIX + maxDistance(words[0]); tier++) {
+            buckets.add(new ArrayList<>());
+        }
+        forEachRow(codes, count, row -> {
+            for (int i = 1; i < words.length; i++) {
+                if (rowTier(tiers[i], row) == NO_MATCH) {
+                    return true;
+                }
+            }
+            int tier = rowTier(tiers[0], row);
+            if (tier != NO_MATCH && buckets.get(tier).size() < limit && !excluded.test(ids[row])) {
+                buckets.get(tier).add(new Match(ids[row], tier));
+            }
+            return buckets.get(EXACT).size() < limit;
+        });
+        for (List<Match> bucket : buckets) {
+            for (int i = 0; i < bucket.size() && matches.size() < limit; i++) {
+                matches.add(bucket.get(i));
+            }
+        }
+        return matches;
+    }
+
+    /** Approximate heap used by the arrays and names of this index. */
+    public long footprintBytes() {
+        long bytes = (long) ids.length * Long.BYTES + (long) gramKeys.length * Long.BYTES
+                + (long) (firstNameCodes.length + lastNameCodes.length + postingStarts.length + postings.length
+                + gramStarts.length + gramNames.length) * Integer.BYTES;
+        for (String name : names) {
+            bytes += 40 + name.length();
+        }
+        return bytes;
+    }
+
+    /** Lower-cases and trims a name the way the index stores it; blank names are treated as missing. */
+    public static String normalize(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /** Splits a query into its normalized words. */
+    public static String[] tokenize(String query) {
+        String normalized = normalize(query);
+        return normalized == null ? new String[0] : normalized.split("\\s+");
+    }
+
+    /**
+     * Ranks a single name against a query word, with the same tiers as {@link #search}.
+     *
+     * @param word A normalized query word.
+     * @param name A normalized name, or null.
+     * @return EXACT, PREFIX, PREFIX + edit distance, or NO_MATCH.
+     */
+    public static int matchTier(String word, String name) {
+        if (name == null) {
+            return NO_MATCH;
+        }
+        if (name.equals(word)) {
+            return EXACT;
+        }
+        if (name.startsWith(word)) {
+            return PREFIX;
+        }
+        int maxDistance = maxDistance(word);
+        int distance = maxDistance == 0 ? Integer.MAX_VALUE : distance(word, name, maxDistance);
+        return distance <= maxDistance ? PREFIX + distance : NO_MATCH;
+    }
+
+    /** Appends the rows of the given names in id order until the limit is reached. */
+    private void collect(int[] codes, int count, int tier, LongPredicate excluded, int limit, List<Match> matches) {
+        if (matches.size() >= limit) {
+            return;
+        }
+        int alreadyMatched = matches.size();
+        forEachRow(codes, count, row -> {
+            if (!excluded.test(ids[row]) && !matchedBefore(ids[row], matches, alreadyMatched)) {
+                matches.add(new Match(ids[row], tier));
+            }
+            return matches.size() < limit;
+        });
+    }
+
+    /**
+     * Walks the posting lists of the given names in student id order, merging them with a heap, and hands
+     * each row once to the visitor until it returns false.
+     */
+    private void forEachRow(int[] codes, int count, IntPredicate visitor) {
+        if (count == 0) {
+            return;
+        }
+        // Each cursor is {posting index, end of the posting list}
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(count,
+                Comparator.comparingInt(cursor -> postings[cursor[0]]));
+        for (int i = 0; i < count; i++) {
+            int start = postingStarts[codes[i]];
+            int end = postingStarts[codes[i] + 1];
+            if (start < end) {
+                cursors.add(new int[]{start, end});
+            }
+        }
+        int previous = -1;
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            int row = postings[cursor[0]++];
+            if (cursor[0] < cursor[1]) {
+                cursors.add(cursor);
+            }
+            // A row reached through both its first and its last name comes up twice in a row
+            if (row == previous) {
+                continue;
+            }
+            previous = row;
+            if (!visitor.test(row)) {
+                return;
+            }
+        }
+    }
+
+    /** The best tier of the first and last name of the row, or NO_MATCH. */
+    private int rowTier(byte[] tiers, int row) {
+        int first = firstNameCodes[row] == StringDictionary.NULL_CODE ? NO_MATCH : tiers[firstNameCodes[row]];
+        int last = lastNameCodes[row] == StringDictionary.NULL_CODE ? NO_MATCH : tiers[lastNameCodes[row]];
+        if (first == NO_MATCH) {
+            return last;
+        }
+        return last == NO_MATCH ? first : Math.min(first, last);
+    }
+
+    /** Whether a better tier already returned the student; at most limit matches are checked. */
+    private static boolean matchedBefore(long id, List<Match> matches, int count) {
+        for (int i = 0; i < count; i++) {
+            if (matches.get(i).studentId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The tier of the word against every name, NO_MATCH where it does not match. */
+    private byte[] nameTiers(String word) {
+        byte[] tiers = new byte[names.length];
+        Arrays.fill(tiers, (byte) NO_MATCH);
+        int from = lowerBound(word);
+        int to = prefixEnd(word, from);
+        Arrays.fill(tiers, from, to, (byte) PREFIX);
+        if (from < to && names[from].equals(word)) {
+            tiers[from] = EXACT;
+        }
+        int maxDistance = maxDistance(word);
+        if (maxDistance > 0) {
+            fuzzyTiers(word, maxDistance, from, to, tiers);
+        }
+        return tiers;
+    }
+
+    /**
+     * Sets PREFIX + edit distance for every name outside the prefix range [from, to) that is within maxDistance
+     * of the word. Only names sharing enough trigrams with the word are compared: an edit changes at most three
+     * trigrams, and at least one trigram has to be shared so that long words do not compare every name.
+     */
+    private void fuzzyTiers(String word, int maxDistance, int from, int to, byte[] tiers) {
+        long[] grams = grams(word);
+        int threshold = Math.max(grams.length - 3 * maxDistance, 1);
+        int[] shared = new int[names.length];
+        for (long gram : grams) {
+            int index = Arrays.binarySearch(gramKeys, gram);
+            if (index >= 0) {
+                for (int i = gramStarts[index]; i < gramStarts[index + 1]; i++) {
+                    shared[gramNames[i]]++;
+                }
+            }
+        }
+        for (int code = 0; code < names.length; code++) {
+            if ((code >= from && code < to) || shared[code] < threshold) {
+                continue;
+            }
+            int distance = distance(word, names[code], maxDistance);
+            if (distance <= maxDistance) {
+                tiers[code] = (byte) (PREFIX + distance);
+            }
+        }
+    }
+
+    /** First name code whose name is greater than or equal to the word. */
+    private int lowerBound(String word) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** End of the range of names starting with the word, which begins at from. */
+    private int prefixEnd(String word, int from) {
+        int low = from;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].startsWith(word)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void forEachName(int row, IntConsumer action) {
+        int first = firstNameCodes[row];
+        int last = lastNameCodes[row];
+        if (first != StringDictionary.NULL_CODE) {
+            action.accept(first);
+        }
+        if (last != StringDictionary.NULL_CODE && last != first) {
+            action.accept(last);
+        }
+    }
+
+    /** Words of up to two letters only match by prefix; longer words allow one edit, and two from six letters. */
+    private static int maxDistance(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /** The distinct trigrams of the name padded with a start and an end marker, each packed into a long. */
+    private static long[] grams(String name) {
+        String padded = GRAM_START + name + GRAM_END;
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /** Levenshtein distance between a and b, or maxDistance + 1 as soon as it is known to exceed maxDistance. */
+    static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    private static int recode(int code, int[] renumbered) {
+        return code == StringDictionary.NULL_CODE ? code : renumbered[code];
+    }
+
+    private static int[] identity(int size) {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Appends rows into growable primitive columns. Rows may arrive in any order,
+     * although streaming them in id order lets {@link #build()} skip the id sort.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private int size;
+        private boolean sortedById = true;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] firstNameCodes = new int[INITIAL_CAPACITY];
+        private int[] lastNameCodes = new int[INITIAL_CAPACITY];
+        private final StringDictionary names = new StringDictionary();
+
+        private Builder() {
+        }
+
+        public Builder add(long id, String firstName, String lastName) {
+            if (size == ids.length) {
+                int capacity = ids.length + (ids.length >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                firstNameCodes = Arrays.copyOf(firstNameCodes, capacity);
+                lastNameCodes = Arrays.copyOf(lastNameCodes, capacity);
+            }
+            if (size > 0 && ids[size - 1] >= id) {
+                sortedById = false;
+            }
+            ids[size] = id;
+            firstNameCodes[size] = names.encode(normalize(firstName));
+            lastNameCodes[size] = names.encode(normalize(lastName));
+            size++;
+            return this;
+        }
+
+        public StudentNameIndex build() {
+            return new StudentNameIndex(this);
+        }
+    }
+}
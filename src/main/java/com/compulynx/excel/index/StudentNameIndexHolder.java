@@ -0,0 +1,215 @@
+package com.compulynx.excel.index;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.repository.StudentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Owns the current {@link StudentNameIndex} snapshot when {@code students.search.enabled} is set.
+ * The snapshot is built by streaming the names of the students table at startup. Saves and deletes of listed
+ * students are kept in a small overlay that is searched next to the snapshot, so they show up as soon as they
+ * are committed; bulk statements, imports and a full overlay trigger a background rebuild, during which
+ * callers get an empty Optional and search the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class StudentNameIndexHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentNameIndexHolder.class);
+    private static final int OVERLAY_LIMIT = 5_000;
+    private static final Comparator<StudentNameIndex.Match> RANK = Comparator
+            .comparingInt(StudentNameIndex.Match::tier)
+            .thenComparingLong(StudentNameIndex.Match::studentId);
+
+    private final StudentRepository studentRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${students.search.enabled:true}")
+    private boolean enabled;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "student-name-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final Map<Long, Change> overlay = new ConcurrentHashMap<>();
+    private volatile StudentNameIndex index;
+
+    /**
+     * A committed change to one student, newer than the snapshot.
+     *
+     * @param sequence  Orders the change against the start of a rebuild.
+     * @param firstName The normalized first name, null once the student is deleted.
+     * @param lastName  The normalized last name, null once the student is deleted.
+     * @param deleted   Whether the student was deleted.
+     */
+    private record Change(long sequence, String firstName, String lastName, boolean deleted) {
+    }
+
+    /**
+     * Searches the snapshot and the overlay for the students matching the query, best matches first.
+     *
+     * @return The ids of at most limit matching students, or an empty Optional while no snapshot is available.
+     */
+    public Optional<List<Long>> search(String query, int limit) {
+        StudentNameIndex snapshot = index;
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        List<StudentNameIndex.Match> matches = snapshot.search(query, limit, overlay::containsKey);
+        List<StudentNameIndex.Match> changed = searchOverlay(StudentNameIndex.tokenize(query));
+        if (!changed.isEmpty()) {
+            matches = new ArrayList<>(matches);
+            matches.addAll(changed);
+            matches.sort(RANK);
+        }
+        return Optional.of(matches.stream()
+                .limit(limit)
+                .map(StudentNameIndex.Match::studentId)
+                .toList());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Records committed saves and deletes in the overlay. Changes of unknown rows, or of more rows than the
+     * overlay holds, drop the snapshot until it is rebuilt, and rebuilds that started before the commit are
+     * discarded.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void updateAfterCommit(StudentsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.scope() != StudentsChangedEvent.Scope.ROWS
+                || event.saved().size() + event.deletedIds().size() > OVERLAY_LIMIT) {
+            generation.incrementAndGet();
+            index = null;
+            scheduleRebuild();
+            return;
+        }
+        for (Student student : event.saved()) {
+            overlay.put(student.getStudentId(), new Change(changeSequence.incrementAndGet(),
+                    StudentNameIndex.normalize(student.getFirstName()),
+                    StudentNameIndex.normalize(student.getLastName()), false));
+        }
+        for (Long studentId : event.deletedIds()) {
+            overlay.put(studentId, new Change(changeSequence.incrementAndGet(), null, null, true));
+        }
+        if (overlay.size() > OVERLAY_LIMIT) {
+            scheduleRebuild();
+        }
+    }
+
+    /** Ranks the changed students the same way the snapshot does; the overlay is small enough to scan. */
+    private List<StudentNameIndex.Match> searchOverlay(String[] words) {
+        List<StudentNameIndex.Match> matches = new ArrayList<>();
+        if (words.length == 0 || overlay.isEmpty()) {
+            return matches;
+        }
+        overlay.forEach((studentId, change) -> {
+            if (change.deleted()) {
+                return;
+            }
+            int tier = bestTier(words[0], change);
+            for (int i = 1; i < words.length && tier != StudentNameIndex.NO_MATCH; i++) {
+                if (bestTier(words[i], change) == StudentNameIndex.NO_MATCH) {
+                    tier = StudentNameIndex.NO_MATCH;
+                }
+            }
+            if (tier != StudentNameIndex.NO_MATCH) {
+                matches.add(new StudentNameIndex.Match(studentId, tier));
+            }
+        });
+        return matches;
+    }
+
+    private static int bestTier(String word, Change change) {
+        int first = StudentNameIndex.matchTier(word, change.firstName());
+        int last = StudentNameIndex.matchTier(word, change.lastName());
+        if (first == StudentNameIndex.NO_MATCH) {
+            return last;
+        }
+        return last == StudentNameIndex.NO_MATCH ? first : Math.min(first, last);
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildWhilePending);
+        }
+    }
+
+    private void rebuildWhilePending() {
+        while (rebuildPending.getAndSet(false)) {
+            long startGeneration = generation.get();
+            // Changes recorded before the read transaction starts are committed, so the new snapshot holds them
+            long startSequence = changeSequence.get();
+            try {
+                StudentNameIndex rebuilt = build();
+                if (generation.get() == startGeneration) {
+                    overlay.values().removeIf(change -> change.sequence() <= startSequence);
+                    index = rebuilt;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to build the student name index", e);
+            }
+        }
+    }
+
+    /** Streams the ids and names of the students table in id order into a new index. */
+    private StudentNameIndex build() {
+        long started = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        StudentNameIndex built = transaction.execute(status -> {
+            StudentNameIndex.Builder builder = StudentNameIndex.builder();
+            try (Stream<Object[]> rows = studentRepository.streamNamesOrderedById()) {
+                rows.forEach(row -> builder.add((Long) row[0], (String) row[1], (String) row[2]));
+            }
+            return builder.build();
+        });
+        log.info("Student name index built with {} rows ({} bytes) in {} ms", built.size(),
+                built.footprintBytes(), (System.nanoTime() - started) / 1_000_000);
+        return built;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
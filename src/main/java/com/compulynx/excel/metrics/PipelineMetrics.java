@@ -0,0 +1,171 @@
+package com.compulynx.excel.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the import and export pipelines, published on /actuator/prometheus.
+ * <ul>
+ *     <li>{@code pipeline.stage.duration} (tags pipeline, stage): latency histogram of each stage of a job or batch</li>
+ *     <li>{@code pipeline.job.duration} (tag pipeline): end-to-end latency of a job</li>
+ *     <li>{@code pipeline.rows} (tag pipeline): rows processed; its rate is the rows/sec throughput</li>
+ *     <li>{@code pipeline.bytes.written} (tag pipeline): bytes of files and responses produced</li>
+ *     <li>{@code pipeline.job.allocated} (tag pipeline): heap allocated by the thread running a job</li>
+ *     <li>{@code excel.generator.queue.depth}: rows waiting in the Excel generator queues</li>
+ *     <li>{@code cache.lookups} (tags cache, result): hits and misses of the export file cache</li>
+ * </ul>
+ * Meters are looked up once per pipeline and stage and cached, and rows and bytes are counted per batch,
+ * so the overhead per job is a handful of clock reads and map lookups.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> jobTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rowCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> byteCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cacheCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> allocationSummaries = new ConcurrentHashMap<>();
+    private final Collection<Collection<?>> generatorQueues = ConcurrentHashMap.newKeySet();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("excel.generator.queue.depth", generatorQueues, PipelineMetrics::totalSize)
+                .description("Rows produced by the generator threads and not yet written to the workbook")
+                .register(registry);
+    }
+
+    /** Starts timing a job of the given pipeline; close the returned job when it is done. */
+    public Job startJob(String pipeline) {
+        return new Job(pipeline);
+    }
+
+    public Timer stageTimer(String pipeline, String stage) {
+        return stageTimers.computeIfAbsent(pipeline + '\u0000' + stage, key -> Timer.builder("pipeline.stage.duration")
+                .description("Time spent in one stage of an import or export pipeline")
+                .tag("pipeline", pipeline)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /** Runs the work and records its duration as the given stage of the pipeline, also when it throws. */
+    public <T, E extends Exception> T time(String pipeline, String stage, Stage<T, E> work) throws E {
+        long start = System.nanoTime();
+        try {
+            return work.run();
+        } finally {
+            stageTimer(pipeline, stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordRows(String pipeline, long rows) {
+        rowCounters.computeIfAbsent(pipeline, key -> Counter.builder("pipeline.rows")
+                .description("Rows processed by an import or export pipeline")
+                .tag("pipeline", pipeline)
+                .register(registry)).increment(rows);
+    }
+
+    public void recordBytes(String pipeline, long bytes) {
+        byteCounters.computeIfAbsent(pipeline, key -> Counter.builder("pipeline.bytes.written")
+                .description("Bytes written by an export or conversion pipeline")
+                .baseUnit("bytes")
+                .tag("pipeline", pipeline)
+                .register(registry)).increment(bytes);
+    }
+
+    public void recordCacheLookup(String cache, boolean hit) {
+        String result = hit ? "hit" : "miss";
+        cacheCounters.computeIfAbsent(cache + '\u0000' + result, key -> Counter.builder("cache.lookups")
+                .description("Lookups of a cache, by result")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry)).increment();
+    }
+
+    /** Makes the queue count towards the generator queue depth gauge until {@link #untrackQueue} is called. */
+    public void trackQueue(Collection<?> queue) {
+        generatorQueues.add(queue);
+    }
+
+    public void untrackQueue(Collection<?> queue) {
+        generatorQueues.remove(queue);
+    }
+
+    private static double totalSize(Collection<Collection<?>> queues) {
+        long size = 0;
+        for (Collection<?> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * One run of a pipeline. Stages run through {@link #stage} are timed individually, and closing the job
+     * records its total duration and the heap allocated by the calling thread since it started.
+     */
+    public final class Job implements AutoCloseable {
+
+        private final String pipeline;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated;
+
+        private Job(String pipeline) {
+            this.pipeline = pipeline;
+            this.startAllocated = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+        }
+
+        public <T, E extends Exception> T stage(String stage, Stage<T, E> work) throws E {
+            return time(pipeline, stage, work);
+        }
+
+        public void rows(long rows) {
+            recordRows(pipeline, rows);
+        }
+
+        public void bytes(long bytes) {
+            recordBytes(pipeline, bytes);
+        }
+
+        @Override
+        public void close() {
+            jobTimers.computeIfAbsent(pipeline, key -> Timer.builder("pipeline.job.duration")
+                    .description("End-to-end time of an import or export job")
+                    .tag("pipeline", pipeline)
+                    .register(registry)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (THREADS != null) {
+                allocationSummaries.computeIfAbsent(pipeline, key -> DistributionSummary.builder("pipeline.job.allocated")
+                        .description("Heap allocated by the thread running an import or export job")
+                        .baseUnit("bytes")
+                        .tag("pipeline", pipeline)
+                        .register(registry)).record(THREADS.getCurrentThreadAllocatedBytes() - startAllocated);
+            }
+        }
+    }
+}
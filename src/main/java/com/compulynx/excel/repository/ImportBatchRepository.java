@@ -0,0 +1,21 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.entity.ImportBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface ImportBatchRepository extends JpaRepository<ImportBatch, String> {
+
+    @Modifying
+    @Query("update ImportBatch b set b.importedAt = :importedAt where b.batchHash in :hashes")
+    int touch(@Param("hashes") Collection<String> hashes, @Param("importedAt") LocalDateTime importedAt);
+
+    @Modifying
+    @Query("delete from ImportBatch b where b.importedAt < :before")
+    int deleteImportedBefore(@Param("before") LocalDateTime before);
+}
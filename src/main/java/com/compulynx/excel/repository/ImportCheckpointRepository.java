@@ -0,0 +1,12 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.entity.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+
+    List<ImportCheckpoint> findByUpdatedAtBefore(LocalDateTime before);
+}
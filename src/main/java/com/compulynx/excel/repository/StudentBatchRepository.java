@@ -0,0 +1,170 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.dto.StudentPatch;
+import com.compulynx.excel.entity.Student;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the students table for write paths that touch too many rows to go through
+ * the entity manager one entity at a time.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentBatchRepository {
+
+    static final String PATCH_SQL = "UPDATE students SET "
+            + "first_name = COALESCE(?, first_name), "
+            + "last_name = COALESCE(?, last_name), "
+            + "dob = COALESCE(?, dob), "
+            + "class_name = COALESCE(?, class_name), "
+            + "score = COALESCE(?, score), "
+            + "change_version = ?, "
+            + "last_modified = ? "
+            + "WHERE student_id = ?";
+
+    /**
+     * Inserts new students and overwrites existing ones, but leaves rows whose values are unchanged untouched,
+     * so they also keep their change version.
+     */
+    static final String UPSERT_SQL = "INSERT INTO students (student_id, first_name, last_name, dob, class_name, score, "
+            + "change_version, last_modified) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (student_id) DO UPDATE SET "
+            + "first_name = EXCLUDED.first_name, "
+            + "last_name = EXCLUDED.last_name, "
+            + "dob = EXCLUDED.dob, "
+            + "class_name = EXCLUDED.class_name, "
+            + "score = EXCLUDED.score, "
+            + "change_version = EXCLUDED.change_version, "
+            + "last_modified = EXCLUDED.last_modified "
+            + "WHERE (students.first_name, students.last_name, students.dob, students.class_name, students.score) "
+            + "IS DISTINCT FROM (EXCLUDED.first_name, EXCLUDED.last_name, EXCLUDED.dob, EXCLUDED.class_name, EXCLUDED.score)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Upserts the students as one JDBC batch of INSERT ... ON CONFLICT (student_id) DO UPDATE statements.
+     *
+     * @param version The change version of the calling transaction, see {@link StudentChangeRepository#nextVersion()}.
+     * @return The number of rows inserted or changed; rows that already held the same values are not counted.
+     */
+    public long upsert(List<Student> students, long version) {
+        Timestamp modifiedAt = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindStudent(ps, students.get(i));
+                ps.setLong(7, version);
+                ps.setTimestamp(8, modifiedAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return students.size();
+            }
+        });
+        return sum(counts);
+    }
+
+    /**
+     * Applies the patches as batched UPDATE statements, sending one JDBC batch per {@code batchSize} patches.
+     * Null fields in a patch leave the column unchanged. The iterator is consumed lazily, so a stream of
+     * patches never has to be held in memory at once.
+     *
+     * @param version The change version of the calling transaction, see {@link StudentChangeRepository#nextVersion()}.
+     * @return The number of rows updated.
+     */
+    public long patch(Iterator<StudentPatch> patches, int batchSize, long version) {
+        Timestamp modifiedAt = Timestamp.valueOf(LocalDateTime.now());
+        long updated = 0;
+        List<StudentPatch> batch = new ArrayList<>(batchSize);
+        while (patches.hasNext()) {
+            batch.add(patches.next());
+            if (batch.size() == batchSize) {
+                updated += executeBatch(batch, version, modifiedAt);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += executeBatch(batch, version, modifiedAt);
+        }
+        return updated;
+    }
+
+    private long executeBatch(List<StudentPatch> batch, long version, Timestamp modifiedAt) {
+        int[] counts = jdbcTemplate.batchUpdate(PATCH_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindPatch(ps, batch.get(i));
+                ps.setLong(6, version);
+                ps.setTimestamp(7, modifiedAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+        return sum(counts);
+    }
+
+    private static long sum(int[] counts) {
+        long rows = 0;
+        for (int count : counts) {
+            // Drivers may report SUCCESS_NO_INFO for batched statements; count those as one row each
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    static void bindStudent(PreparedStatement ps, Student student) throws SQLException {
+        ps.setLong(1, student.getStudentId());
+        ps.setString(2, student.getFirstName());
+        ps.setString(3, student.getLastName());
+        if (student.getDob() != null) {
+            ps.setDate(4, Date.valueOf(student.getDob()));
+        } else {
+            ps.setNull(4, Types.DATE);
+        }
+        ps.setString(5, student.getClassName());
+        if (student.getScore() != null) {
+            ps.setInt(6, student.getScore());
+        } else {
+            ps.setNull(6, Types.INTEGER);
+        }
+    }
+
+    static void bindPatch(PreparedStatement ps, StudentPatch patch) throws SQLException {
+        if (patch.getStudentId() == null) {
+            throw new IllegalArgumentException("Every student patch needs a studentId");
+        }
+        ps.setString(1, patch.getFirstName());
+        ps.setString(2, patch.getLastName());
+        if (patch.getDob() != null) {
+            ps.setDate(3, Date.valueOf(patch.getDob()));
+        } else {
+            ps.setNull(3, Types.DATE);
+        }
+        ps.setString(4, patch.getClassName());
+        if (patch.getScore() != null) {
+            ps.setInt(5, patch.getScore());
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setLong(8, patch.getStudentId());
+    }
+}
@@ -0,0 +1,184 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.dto.StudentChange;
+import com.compulynx.excel.entity.Student;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the change tracking tables: the {@code student_change_clock} row that hands out change
+ * versions, the {@code student_tombstones} left by deletes, and the change feed reading both with the
+ * {@code change_version} column of the students table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentChangeRepository {
+
+    static final int FETCH_SIZE = 10_000;
+
+    static final String NEXT_VERSION_SQL = "INSERT INTO student_change_clock (id, version, reset_version) "
+            + "VALUES (1, 1, 0) "
+            + "ON CONFLICT (id) DO UPDATE SET version = student_change_clock.version + 1 "
+            + "RETURNING version";
+
+    static final String CLOCK_SQL = "SELECT version, reset_version FROM student_change_clock WHERE id = 1";
+
+    static final String TOMBSTONE_SQL = "INSERT INTO student_tombstones (student_id, change_version, deleted_at) "
+            + "SELECT student_id, ?, ? FROM students WHERE %s "
+            + "ON CONFLICT (student_id) DO UPDATE SET "
+            + "change_version = EXCLUDED.change_version, "
+            + "deleted_at = EXCLUDED.deleted_at";
+
+    /** Upserts and deletes in version order; a delete comes before an upsert of the same version. */
+    static final String CHANGES_SQL = "SELECT change_version, 'UPSERT' AS operation, student_id, first_name, "
+            + "last_name, dob, class_name, score, last_modified AS modified_at "
+            + "FROM students WHERE change_version > ? AND change_version <= ? "
+            + "UNION ALL "
+            + "SELECT change_version, 'DELETE', student_id, NULL, NULL, NULL, NULL, NULL, deleted_at "
+            + "FROM student_tombstones WHERE change_version > ? AND change_version <= ? "
+            + "ORDER BY 1, 2, 3";
+
+    static final String LOCK_CLOCK_SQL = "SELECT version FROM student_change_clock WHERE id = 1 FOR UPDATE";
+
+    static final String SNAPSHOT_SQL = "SELECT COALESCE(change_version, 0), 'UPSERT', student_id, first_name, "
+            + "last_name, dob, class_name, score, last_modified "
+            + "FROM students ORDER BY student_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Current state of the clock.
+     *
+     * @param version      The last version handed out, 0 before the first write.
+     * @param resetVersion The oldest version the feed can continue from: the version of the last delete of every
+     *                     student or of the newest compacted tombstone, 0 if there was neither.
+     */
+    public record Clock(long version, long resetVersion) {
+    }
+
+    /**
+     * Hands out the version of the calling transaction's writes. The clock row stays locked until the
+     * transaction ends, so concurrent writers take their versions, and commit, one after the other.
+     * Must be called inside the writing transaction, before its first write.
+     */
+    public long nextVersion() {
+        return jdbcTemplate.queryForObject(NEXT_VERSION_SQL, Long.class);
+    }
+
+    public Clock readClock() {
+        List<Clock> clock = jdbcTemplate.query(CLOCK_SQL,
+                (rs, rowNum) -> new Clock(rs.getLong(1), rs.getLong(2)));
+        return clock.isEmpty() ? new Clock(0, 0) : clock.get(0);
+    }
+
+    /**
+     * Records that every student is about to be deleted: the tombstones are dropped, and clients that synced
+     * before this version have to start over from a full snapshot.
+     */
+    public void reset(long version) {
+        jdbcTemplate.update("UPDATE student_change_clock SET reset_version = ? WHERE id = 1", version);
+        jdbcTemplate.execute("TRUNCATE TABLE student_tombstones");
+    }
+
+    /**
+     * Drops the tombstones of deletes made before the given time, and every older tombstone with them. The reset
+     * version is raised to the newest dropped tombstone, so clients that synced before it start over from a full
+     * snapshot instead of missing the deletes. The clock row is locked first, in the same order as every writer.
+     * Must be called inside a transaction.
+     *
+     * @return The number of tombstones dropped.
+     */
+    public int compactTombstones(LocalDateTime deletedBefore) {
+        jdbcTemplate.queryForList(LOCK_CLOCK_SQL, Long.class);
+        Long newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(change_version) FROM student_tombstones WHERE deleted_at < ?", Long.class,
+                Timestamp.valueOf(deletedBefore));
+        if (newest == null) {
+            return 0;
+        }
+        int compacted = jdbcTemplate.update("DELETE FROM student_tombstones WHERE change_version <= ?", newest);
+        jdbcTemplate.update("UPDATE student_change_clock SET reset_version = GREATEST(reset_version, ?) WHERE id = 1",
+                newest);
+        return compacted;
+    }
+
+    /** Leaves a tombstone for each of the students with the given IDs that exists; call it before deleting them. */
+    public int recordDeletes(Collection<Long> studentIds, long version) {
+        return jdbcTemplate.update(TOMBSTONE_SQL.formatted("student_id = ANY (?)"), ps -> {
+            bindTombstone(ps, version);
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", studentIds.toArray()));
+        });
+    }
+
+    /** Leaves a tombstone for each student of the class; call it before deleting them. */
+    public int recordDeletesByClassName(String className, long version) {
+        return jdbcTemplate.update(TOMBSTONE_SQL.formatted("class_name = ?"), ps -> {
+            bindTombstone(ps, version);
+            ps.setString(3, className);
+        });
+    }
+
+    /** Streams the upserts and deletes with a version in (since, until], in version order. */
+    public void streamChanges(long since, long until, Consumer<StudentChange> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CHANGES_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, since);
+            ps.setLong(2, until);
+            ps.setLong(3, since);
+            ps.setLong(4, until);
+            return ps;
+        }, changeHandler(consumer));
+    }
+
+    /** Streams every current student as an upsert, in id order. */
+    public void streamSnapshot(Consumer<StudentChange> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SNAPSHOT_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, changeHandler(consumer));
+    }
+
+    private static RowCallbackHandler changeHandler(Consumer<StudentChange> consumer) {
+        return rs -> consumer.accept(toChange(rs));
+    }
+
+    private static StudentChange toChange(ResultSet rs) throws SQLException {
+        StudentChange.Operation operation = StudentChange.Operation.valueOf(rs.getString(2));
+        Timestamp modifiedAt = rs.getTimestamp(9);
+        StudentChange change = new StudentChange(rs.getLong(1), operation, rs.getLong(3),
+                modifiedAt == null ? null : modifiedAt.toLocalDateTime(), null);
+        if (operation == StudentChange.Operation.UPSERT) {
+            Student student = new Student();
+            student.setStudentId(rs.getLong(3));
+            student.setFirstName(rs.getString(4));
+            student.setLastName(rs.getString(5));
+            Date dob = rs.getDate(6);
+            student.setDob(dob == null ? null : dob.toLocalDate());
+            student.setClassName(rs.getString(7));
+            student.setScore(rs.getObject(8, Integer.class));
+            student.setChangeVersion(change.getVersion());
+            student.setLastModified(change.getModifiedAt());
+            change.setStudent(student);
+        }
+        return change;
+    }
+
+    private static void bindTombstone(PreparedStatement ps, long version) throws SQLException {
+        ps.setLong(1, version);
+        ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
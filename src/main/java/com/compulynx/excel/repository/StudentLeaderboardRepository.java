@@ -0,0 +1,111 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.entity.Student;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC leaderboard queries. Each class is ranked by its own index scan on (class_name, score) that stops
+ * after the requested number of rows, so no query sorts a whole class or the whole table.
+ * Students without a score are not ranked.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentLeaderboardRepository {
+
+    static final String CLASS_SIZES_SQL = "SELECT class_name, COUNT(score) FROM students "
+            + "GROUP BY class_name ORDER BY class_name";
+
+    /**
+     * Skip scan over (class_name, score): each step probes the index for the first class name after the previous
+     * one, so listing the classes costs one index lookup per class instead of a scan of the table.
+     */
+    static final String CLASS_NAMES_SQL = "WITH RECURSIVE classes(class_name) AS ("
+            + "(SELECT class_name FROM students WHERE class_name IS NOT NULL ORDER BY class_name LIMIT 1) "
+            + "UNION ALL "
+            + "SELECT (SELECT s.class_name FROM students s WHERE s.class_name > c.class_name "
+            + "ORDER BY s.class_name LIMIT 1) "
+            + "FROM classes c WHERE c.class_name IS NOT NULL) "
+            + "SELECT class_name FROM classes WHERE class_name IS NOT NULL";
+
+    static final String TOP_SQL = "SELECT student_id, first_name, last_name, dob, class_name, score FROM students "
+            + "WHERE score IS NOT NULL "
+            + "ORDER BY score %1$s, student_id "
+            + "LIMIT ?";
+
+    /** One LIMIT per class, taken from the parallel arrays of class names and limits. */
+    static final String TOP_BY_CLASS_NAME_SQL = "SELECT s.student_id, s.first_name, s.last_name, s.dob, s.class_name, "
+            + "s.score "
+            + "FROM unnest(?::varchar[], ?::int[]) WITH ORDINALITY AS c(class_name, row_limit, ordinal) "
+            + "CROSS JOIN LATERAL ("
+            + "SELECT * FROM students WHERE students.class_name = c.class_name AND students.score IS NOT NULL "
+            + "ORDER BY students.score %1$s, students.student_id "
+            + "LIMIT c.row_limit) s "
+            + "ORDER BY c.ordinal, s.score %1$s, s.student_id";
+
+    static final RowMapper<Student> STUDENT_ROW_MAPPER = (rs, rowNum) -> {
+        Student student = new Student();
+        student.setStudentId(rs.getLong(1));
+        student.setFirstName(rs.getString(2));
+        student.setLastName(rs.getString(3));
+        Date dob = rs.getDate(4);
+        student.setDob(dob == null ? null : dob.toLocalDate());
+        student.setClassName(rs.getString(5));
+        student.setScore(rs.getObject(6, Integer.class));
+        return student;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Number of scored students per class, in class name order. It scans the whole (class_name, score) index,
+     * so only call it when the sizes are needed.
+     * Students without a class are counted under the null key.
+     */
+    public Map<String, Long> countScoredByClassName() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        jdbcTemplate.query(CLASS_SIZES_SQL, rs -> {
+            sizes.put(rs.getString(1), rs.getLong(2));
+        });
+        return sizes;
+    }
+
+    /** The distinct class names in order, students without a class left out. */
+    public List<String> findClassNames() {
+        return jdbcTemplate.queryForList(CLASS_NAMES_SQL, String.class);
+    }
+
+    /** The first students of the whole table, best first for DESC and worst first for ASC, ties by ID. */
+    public List<Student> findTop(Sort.Direction direction, int limit) {
+        return jdbcTemplate.query(TOP_SQL.formatted(direction.name()), STUDENT_ROW_MAPPER, limit);
+    }
+
+    /**
+     * The first students of each class, in the order of the given class names.
+     *
+     * @param limits The number of students to return for each class, by class name.
+     * @return The students of each class, ordered like {@link #findTop}; classes without scored students are absent.
+     */
+    public Map<String, List<Student>> findTopByClassName(Sort.Direction direction, Map<String, Integer> limits) {
+        String[] classNames = limits.keySet().toArray(String[]::new);
+        Integer[] rowLimits = limits.values().toArray(Integer[]::new);
+        Map<String, List<Student>> byClassName = new LinkedHashMap<>();
+        jdbcTemplate.query(TOP_BY_CLASS_NAME_SQL.formatted(direction.name()), ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", classNames));
+            ps.setArray(2, ps.getConnection().createArrayOf("integer", rowLimits));
+        }, rs -> {
+            Student student = STUDENT_ROW_MAPPER.mapRow(rs, rs.getRow());
+            byClassName.computeIfAbsent(student.getClassName(), className -> new ArrayList<>()).add(student);
+        });
+        return byClassName;
+    }
+}
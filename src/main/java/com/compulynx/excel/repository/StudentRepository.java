@@ -1,10 +1,70 @@
 package com.compulynx.excel.repository;
 
 import com.compulynx.excel.entity.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Page<Student> findByClassName(String className, Pageable pageable);
+
+    List<Student> findByClassNameOrderByStudentId(String className);
+
+    List<Student> findByScoreBetweenOrderByScoreAscStudentIdAsc(Integer minScore, Integer maxScore);
+
+    /** Cursor over the whole table in id order; must be consumed inside a transaction and closed. */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s from Student s order by s.studentId")
+    Stream<Student> streamAllOrderedById();
+
+    /** Cursor over the id, first name and last name of every student in id order, without loading the entities. */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s.studentId, s.firstName, s.lastName from Student s order by s.studentId")
+    Stream<Object[]> streamNamesOrderedById();
+
+    /** Students whose lower-cased first or last name matches a LIKE pattern escaped with a backslash. */
+    @Query("select s from Student s where lower(s.firstName) like :pattern escape '\\'"
+            + " or lower(s.lastName) like :pattern escape '\\' order by s.studentId")
+    List<Student> findByNameLike(@Param("pattern") String pattern, Pageable pageable);
+
+    /** Blocks every other read and write of the table until the calling transaction ends. */
+    @Modifying
+    @Query(value = "LOCK TABLE students IN ACCESS EXCLUSIVE MODE", nativeQuery = true)
+    void lockTable();
+
+    /** Empties the table in one statement instead of loading and deleting every entity. */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "TRUNCATE TABLE students", nativeQuery = true)
+    void truncate();
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Student s where s.className = :className")
+    int deleteAllByClassNameInBulk(@Param("className") String className);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Student s where s.studentId in :ids")
+    int deleteAllByStudentIdInBulk(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Student s set s.score = s.score + :delta, s.changeVersion = :version, "
+            + "s.lastModified = :modifiedAt where s.className = :className")
+    int addToScoreByClassName(@Param("className") String className, @Param("delta") int delta,
+                              @Param("version") long version, @Param("modifiedAt") LocalDateTime modifiedAt);
 }
@@ -0,0 +1,75 @@
+package com.compulynx.excel.repository;
+
+import com.compulynx.excel.dto.StudentField;
+import com.compulynx.excel.entity.Student;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Plain JDBC cursor over the students table for responses that stream every student. Only the requested
+ * columns are selected, and rows are fetched {@value #FETCH_SIZE} at a time instead of all at once, which
+ * PostgreSQL only does inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentStreamRepository {
+
+    static final int FETCH_SIZE = 10_000;
+
+    static final String STUDENTS_SQL = "SELECT %s FROM students ORDER BY student_id";
+
+    static final String STUDENTS_BY_CLASS_NAME_SQL = "SELECT %s FROM students WHERE class_name = ? "
+            + "ORDER BY student_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams the students in ID order, with only the given fields set.
+     *
+     * @param className The class to stream, or null for every student.
+     * @param consumer  Receives the students, one at a time, while the rows are read.
+     */
+    public void streamStudents(String className, Set<StudentField> fields, Consumer<Student> consumer) {
+        String columns = fields.stream().map(StudentField::getColumn).collect(Collectors.joining(", "));
+        String sql = (className == null ? STUDENTS_SQL : STUDENTS_BY_CLASS_NAME_SQL).formatted(columns);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            if (className != null) {
+                ps.setString(1, className);
+            }
+            return ps;
+        }, rs -> {
+            consumer.accept(toStudent(rs, fields));
+        });
+    }
+
+    private static Student toStudent(ResultSet rs, Set<StudentField> fields) throws SQLException {
+        Student student = new Student();
+        int column = 1;
+        for (StudentField field : fields) {
+            switch (field) {
+                case STUDENT_ID -> student.setStudentId(rs.getLong(column));
+                case FIRST_NAME -> student.setFirstName(rs.getString(column));
+                case LAST_NAME -> student.setLastName(rs.getString(column));
+                case DOB -> {
+                    Date dob = rs.getDate(column);
+                    student.setDob(dob == null ? null : dob.toLocalDate());
+                }
+                case CLASS_NAME -> student.setClassName(rs.getString(column));
+                case SCORE -> student.setScore(rs.getObject(column, Integer.class));
+            }
+            column++;
+        }
+        return student;
+    }
+}
@@ -1,15 +1,21 @@
 package com.compulynx.excel.service;
 
-import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.dto.ImportSummary;
+import com.compulynx.excel.dto.SavedStudents;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
 
 public interface CSVService {
 
-    List<Student> readAndSaveCsvFile(MultipartFile multipartFile) throws IOException;
-    byte[] exportCSVFile();
+    SavedStudents readAndSaveCsvFile(MultipartFile multipartFile) throws IOException;
+
+    ImportSummary upsertCsvFile(MultipartFile multipartFile) throws IOException;
+
+    byte[] exportCSVFile(String className);
+
+    void exportChangesCSVFile(Long since, OutputStream outputStream) throws IOException;
 
     byte[] exportPdfFile();
 }
@@ -1,9 +1,11 @@
 package com.compulynx.excel.service;
 
+import com.compulynx.excel.dto.ImportSummary;
 import com.compulynx.excel.entity.Student;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -13,5 +15,9 @@ public interface ExcelService {
     Map<Integer, List<String>> readExcelFile(MultipartFile multipartFile) throws IOException;
     String convertExcelFileToCsv(MultipartFile multipartFile) throws IOException;
 
-    byte[] exportExcelFile() throws IOException;
+    ImportSummary upsertExcelFile(MultipartFile multipartFile) throws IOException;
+
+    byte[] exportExcelFile(String className) throws IOException;
+
+    void exportExcelFile(String className, OutputStream outputStream) throws IOException;
 }
@@ -0,0 +1,38 @@
+package com.compulynx.excel.service;
+
+import com.compulynx.excel.dto.ImportSummary;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+public interface StudentImportService {
+
+    ImportSummary upsertFile(MultipartFile multipartFile, RowSource rowSource) throws IOException;
+
+    Optional<Path> getRejectFile(String rejectFileId) throws IOException;
+
+    /** The parsed rows of a spooled upload, header row included. */
+    interface Rows extends Iterator<List<String>>, AutoCloseable {
+
+        /** Byte offset in the file just past the last returned row, or -1 if the format cannot be read from an offset. */
+        long position();
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /** Opens the rows of a spooled upload in a given file format. */
+    @FunctionalInterface
+    interface RowSource {
+
+        /**
+         * @param file       The spooled upload.
+         * @param byteOffset 0 to read the file from the start, or a {@link Rows#position()} to resume after that row.
+         */
+        Rows open(Path file, long byteOffset) throws IOException;
+    }
+}
@@ -1,28 +1,57 @@
 package com.compulynx.excel.service;
 
+import com.compulynx.excel.dto.BulkOperationResponse;
+import com.compulynx.excel.dto.LeaderboardResponse;
+import com.compulynx.excel.dto.SavedStudents;
+import com.compulynx.excel.dto.StudentChange;
+import com.compulynx.excel.dto.StudentField;
+import com.compulynx.excel.dto.StudentPatch;
 import com.compulynx.excel.entity.Student;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public interface StudentService {
 
-    List<Student> saveStudentData(List<List<String>> rawData);
+    SavedStudents saveStudentData(List<List<String>> rawData);
 
     List<Student> getAllStudents();
 
-    void deleteAllStudents();
+    List<Student> getStudentsForExport(String className);
+
+    void streamStudents(String className, Set<StudentField> fields, Consumer<Student> consumer);
+
+    BulkOperationResponse deleteAllStudents();
+
+    BulkOperationResponse deleteStudentsByClassName(String className);
+
+    BulkOperationResponse deleteStudentsByIds(List<Long> ids);
 
     void deleteStudentById(Long id);
 
     Student editStudent(Long id, Student updatedStudent);
 
+    BulkOperationResponse patchStudents(Iterator<StudentPatch> patches);
+
+    BulkOperationResponse addToScoreByClassName(String className, int delta);
+
     Page<Student> getStudentsWithPaginationAndSorting(int page, int size, String sortBy, String sortDirection,
                                                       String className);
 
     Student getStudentById(Long id);
 
+    void streamChanges(Long since, Consumer<StudentChange> consumer);
+
+    LeaderboardResponse getLeaderboard(String sortDirection, int limit, Double percent);
+
+    List<Student> getStudentsByScoreRange(int minScore, int maxScore);
+
     Page<Student> getStudentsByClassName(String className, Pageable pageable);
+
+    List<Student> searchStudents(String query, int limit);
 }
@@ -1,18 +1,29 @@
 package com.compulynx.excel.service.impl;
 
+import com.compulynx.excel.csv.CsvFileParser;
+import com.compulynx.excel.csv.CsvRecordParser;
+import com.compulynx.excel.dto.ImportSummary;
+import com.compulynx.excel.dto.SavedStudents;
+import com.compulynx.excel.dto.StudentChange;
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.metrics.PipelineMetrics;
 import com.compulynx.excel.service.CSVService;
 import com.compulynx.excel.service.PdfConverterService;
+import com.compulynx.excel.service.StudentImportService;
 import com.compulynx.excel.service.StudentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,24 +35,142 @@ public class CSVServiceImpl implements CSVService {
 
     private final StudentService studentService;
     private final TemplateEngine templateEngine;
+    @Lazy
     private final PdfConverterService converter;
-    private static final String COMMA_DELIMITER = ",";
-    public List<Student> readAndSaveCsvFile(MultipartFile multipartFile) throws IOException {
-        List<List<String>> records;
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(multipartFile.getInputStream()))) {
-            records = reader.lines()
-                    .map(line -> Arrays.asList(line.split(COMMA_DELIMITER)))
-                    .collect(Collectors.toList());
+    private final StudentImportService studentImportService;
+    private final PipelineMetrics metrics;
+
+    public SavedStudents readAndSaveCsvFile(MultipartFile multipartFile) throws IOException {
+        try (PipelineMetrics.Job job = metrics.startJob("csv.import")) {
+            List<List<String>> records = job.stage("parse", () -> parseCsvFile(multipartFile));
+            job.rows(records.size());
+            return job.stage("save", () -> studentService.saveStudentData(records));
+        }
+    }
+
+    /** Streams the records of the CSV file into the idempotent upsert import. The records are parsed ahead in
+     * parallel chunks, so the file is never held in memory as a whole, and a resumed import reads the file
+     * from the byte offset of its checkpoint.
+     */
+    public ImportSummary upsertCsvFile(MultipartFile multipartFile) throws IOException {
+        try (PipelineMetrics.Job job = metrics.startJob("csv.upsert")) {
+            ImportSummary summary = job.stage("import",
+                    () -> studentImportService.upsertFile(multipartFile, CSVServiceImpl::openRows));
+            job.rows(summary.getTotalRows());
+            return summary;
         }
+    }
+
+    static StudentImportService.Rows openRows(Path file, long byteOffset) throws IOException {
+        CsvFileParser.RecordIterator records = CsvFileParser.open(file, byteOffset);
+        return new StudentImportService.Rows() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return records.next();
+            }
 
-        return studentService.saveStudentData(records);
+            @Override
+            public long position() {
+                return records.position();
+            }
+
+            @Override
+            public void close() throws IOException {
+                records.close();
+            }
+        };
+    }
+
+    /** Parses the uploaded CSV file with the RFC 4180 parser. Small files are parsed in memory on the calling
+     * thread; larger ones are spooled to disk and parsed in parallel, record-aligned chunks.
+     */
+    private List<List<String>> parseCsvFile(MultipartFile multipartFile) throws IOException {
+        if (multipartFile.getSize() <= CsvFileParser.DEFAULT_CHUNK_BYTES) {
+            byte[] bytes = multipartFile.getBytes();
+            CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+            List<List<String>> records = new ArrayList<>();
+            List<String> record;
+            while ((record = parser.next()) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+
+        Path spooled = spool(multipartFile);
+        try {
+            return CsvFileParser.parseAll(spooled);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    private Path spool(MultipartFile multipartFile) throws IOException {
+        Path spooled = Files.createTempFile("students-upload-", ".csv");
+        multipartFile.transferTo(spooled);
+        return spooled;
     }
 
     /** This is a simple implementation that converts the list of students to a CSV string.
      * For larger datasets, consider streaming the data directly to the output stream to avoid memory issues.
+     *
+     * @param className The class to export, or null for every student.
      */
-    public byte[] exportCSVFile() {
-        Iterator<Student> studentsIterator = studentService.getAllStudents().iterator();
+    public byte[] exportCSVFile(String className) {
+        try (PipelineMetrics.Job job = metrics.startJob("csv.export")) {
+            List<Student> students = job.stage("fetch", () -> studentService.getStudentsForExport(className));
+            byte[] csv = job.stage("serialize", () -> toCsv(students.iterator()));
+            job.rows(students.size());
+            job.bytes(csv.length);
+            return csv;
+        }
+    }
+
+    /** Writes the changes since the given change version as CSV while they are read, one row per change.
+     * Deleted students only carry their ID; a RESET row carries only the version and is followed by every
+     * current student.
+     */
+    public void exportChangesCSVFile(Long since, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("Change Version,Change,Student ID,First Name,Last Name,Date of Birth,Class Name,Score\n");
+        try {
+            studentService.streamChanges(since, change -> {
+                try {
+                    writer.write(toCsvRow(change));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String toCsvRow(StudentChange change) {
+        StringBuilder row = new StringBuilder();
+        row.append(change.getVersion()).append(",").append(change.getOperation()).append(",");
+        if (change.getStudentId() != null) {
+            row.append(change.getStudentId());
+        }
+        Student student = change.getStudent();
+        if (student == null) {
+            return row.append(",,,,,\n").toString();
+        }
+        return row.append(",")
+                .append(student.getFirstName()).append(",")
+                .append(student.getLastName()).append(",")
+                .append(student.getDob()).append(",")
+                .append(student.getClassName()).append(",")
+                .append(student.getScore()).append("\n")
+                .toString();
+    }
+
+    private byte[] toCsv(Iterator<Student> studentsIterator) {
         StringBuilder csvData = new StringBuilder();
         csvData.append("Student ID,First Name,Last Name,Date of Birth,Class Name,Score\n");
         while(studentsIterator.hasNext()) {
@@ -62,13 +191,17 @@ public class CSVServiceImpl implements CSVService {
      * For larger datasets, consider streaming the data directly to the PDF output stream to avoid memory issues.
      */
     public byte[] exportPdfFile() {
-        List<Student> students = studentService.getAllStudents();
-        Context context = new Context();
-        context.setVariable("students", students);
-        String studentsHtml = templateEngine.process("students.html", context);
+        try (PipelineMetrics.Job job = metrics.startJob("pdf.template")) {
+            List<Student> students = job.stage("fetch", studentService::getAllStudents);
+            Context context = new Context();
+            context.setVariable("students", students);
+            String studentsHtml = job.stage("render", () -> templateEngine.process("students.html", context));
 
-        ByteArrayOutputStream byteArrayOutputStream = converter.convert(studentsHtml);
+            ByteArrayOutputStream byteArrayOutputStream = job.stage("convert", () -> converter.convert(studentsHtml));
 
-        return byteArrayOutputStream.toByteArray();
+            job.rows(students.size());
+            job.bytes(byteArrayOutputStream.size());
+            return byteArrayOutputStream.toByteArray();
+        }
     }
 }
@@ -1,8 +1,14 @@
 package com.compulynx.excel.service.impl;
 
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.dto.ImportSummary;
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.metrics.CountingOutputStream;
+import com.compulynx.excel.metrics.PipelineMetrics;
 import com.compulynx.excel.repository.StudentRepository;
 import com.compulynx.excel.service.ExcelService;
+import com.compulynx.excel.service.StudentImportService;
+import com.compulynx.excel.xlsx.XlsxStreamWriter;
 import com.github.pjfanning.xlsx.StreamingReader;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.compress.utils.Lists;
@@ -15,15 +21,15 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import net.datafaker.Faker;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -31,13 +37,20 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 @Service
+@Lazy
 @RequiredArgsConstructor
 public class ExcelServiceImpl implements ExcelService {
 
     private final StudentServiceImpl studentService;
+    private final StudentImportService studentImportService;
+    private final PipelineMetrics metrics;
+    private final DataProcessingDirectory dataProcessingDirectory;
+
+    /** direct writes workbooks with {@link XlsxStreamWriter}, sxssf with POI's SXSSFWorkbook. */
+    @Value("${excel.writer:direct}")
+    String writer;
 
     record StudentData(long id, String first, String last, String dob, String className, int score) {}
 
@@ -46,6 +59,8 @@ public class ExcelServiceImpl implements ExcelService {
 
         BlockingQueue<StudentData> queue = new LinkedBlockingQueue<>(10000);
         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        PipelineMetrics.Job job = metrics.startJob("excel.generate");
+        metrics.trackQueue(queue);
 
         long rowsPerThread = noRows / threadCount;
         for (int i = 0; i < threadCount; i++) {
@@ -55,10 +70,37 @@ public class ExcelServiceImpl implements ExcelService {
         }
 
 
-        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
-        SXSSFSheet sheet = (SXSSFSheet) workbook.createSheet("Students");
-        createHeader(sheet);
+        try (job) {
+            if (isDirectWriter()) {
+                String fileLocation = dataProcessingDirectory.resolve("student_data.xlsx").toString();
+                // One pass: rows are encoded into the zip entry on the file as they come off the queue
+                try (CountingOutputStream outputStream = new CountingOutputStream(new FileOutputStream(fileLocation))) {
+                    try (XlsxStreamWriter xlsx = new XlsxStreamWriter(outputStream, "Students")) {
+                        xlsx.row().cell("studentId").cell("firstName").cell("lastName").cell("DOB").cell("class")
+                                .cell("score");
+                        job.rows(job.stage("write", () -> writeRows(xlsx, queue, noRows)));
+                    }
+                    job.bytes(outputStream.getCount());
+                }
+                executor.shutdown();
+                return "Excel file generated with " + noRows + " rows. In the file location: " + fileLocation;
+            }
+
+            SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+            SXSSFSheet sheet = (SXSSFSheet) workbook.createSheet("Students");
+            createHeader(sheet);
 
+            int rowsWritten = job.stage("write", () -> writeRows(sheet, queue, noRows));
+            job.rows(rowsWritten);
+
+            executor.shutdown();
+            return job.stage("save", () -> saveFile(workbook, noRows, job));
+        } finally {
+            metrics.untrackQueue(queue);
+        }
+    }
+
+    private int writeRows(SXSSFSheet sheet, BlockingQueue<StudentData> queue, Long noRows) throws InterruptedException {
         int rowsWritten = 0;
         while (rowsWritten < noRows) {
             StudentData data = queue.poll(5, TimeUnit.SECONDS); // Wait for data
@@ -67,9 +109,21 @@ public class ExcelServiceImpl implements ExcelService {
                 writeRow(sheet, rowsWritten, data);
             }
         }
+        return rowsWritten;
+    }
 
-        executor.shutdown();
-        return saveFile(workbook, noRows);
+    private int writeRows(XlsxStreamWriter xlsx, BlockingQueue<StudentData> queue, Long noRows)
+            throws InterruptedException, IOException {
+        int rowsWritten = 0;
+        while (rowsWritten < noRows) {
+            StudentData data = queue.poll(5, TimeUnit.SECONDS); // Wait for data
+            if (data != null) {
+                rowsWritten++;
+                xlsx.row().cell(data.id()).cell(data.first()).cell(data.last()).cell(data.dob())
+                        .cell(data.className()).cell(data.score());
+            }
+        }
+        return rowsWritten;
     }
 
     public void generateData(long start, long end, BlockingQueue<StudentData> queue) {
@@ -117,28 +171,13 @@ public class ExcelServiceImpl implements ExcelService {
         row.createCell(5).setCellValue(data.score());
     }
 
-    private String saveFile(SXSSFWorkbook workbook, Long noRows) throws IOException {
-        String baseDir;
-        String os = System.getProperty("os.name").toLowerCase();
+    private String saveFile(SXSSFWorkbook workbook, Long noRows, PipelineMetrics.Job job) throws IOException {
+        String fileLocation = dataProcessingDirectory.resolve("student_data.xlsx").toString();
 
-        if (os.contains("win")) {
-            baseDir = "C:\\var\\log\\applications\\API\\dataprocessing\\";
-        } else {
-            baseDir = "/var/log/applications/API/dataprocessing/";
+        try (CountingOutputStream outputStream = new CountingOutputStream(new FileOutputStream(fileLocation))) {
+            workbook.write(outputStream);
+            job.bytes(outputStream.getCount());
         }
-
-        Path basePath = Paths.get(baseDir);
-
-        if (!Files.exists(basePath)) {
-            Files.createDirectories(basePath);
-        }
-
-        File currentDirectory =  new File(baseDir);
-        String path = currentDirectory.getAbsolutePath();
-        String fileLocation = Paths.get(baseDir, "student_data.xlsx").toString();
-
-        FileOutputStream outputStream = new FileOutputStream(fileLocation);
-        workbook.write(outputStream);
         workbook.close();
 
         return "Excel file generated with " + noRows + " rows. In the file location: " + fileLocation;
@@ -149,6 +188,14 @@ public class ExcelServiceImpl implements ExcelService {
      * Uses Apache POI's StreamingReader for efficient memory usage when reading large files.
      */
     public Map<Integer, List<String>> readExcelFile(MultipartFile multipartFile) throws IOException {
+        try (PipelineMetrics.Job job = metrics.startJob("excel.read")) {
+            Map<Integer, List<String>> data = job.stage("parse", () -> readRows(multipartFile));
+            job.rows(data.size());
+            return data;
+        }
+    }
+
+    private Map<Integer, List<String>> readRows(MultipartFile multipartFile) throws IOException {
         IOUtils.setByteArrayMaxOverride(600_000_000);
         Logger log = org.slf4j.LoggerFactory.getLogger(getClass());
         InputStream file = multipartFile.getInputStream();
@@ -168,37 +215,82 @@ public class ExcelServiceImpl implements ExcelService {
             batch.add(rowIterator.next());
             if(batch.size() == 10000) {
                 for (Row row : batch) {
-                    List<String> rowData = new ArrayList<>();
+                    data.put(row.getRowNum(), readRow(row));
+                }
+                batch.clear();
+            }
+        }
+        log.info("Excel file read successfully with " + data.size() + " rows.");
+        return  data;
+    }
 
-                    for (Cell cell : row) {
-                        switch (cell.getCellType()) {
-                            case STRING -> rowData.add(cell.getStringCellValue());
+    /**
+     * Returns the values of the cells in the given row as strings.
+     */
+    private List<String> readRow(Row row) {
+        List<String> rowData = new ArrayList<>();
+
+        for (Cell cell : row) {
+            switch (cell.getCellType()) {
+                case STRING -> rowData.add(cell.getStringCellValue());
+
+                case NUMERIC -> {
+                    if (DateUtil.isCellDateFormatted(cell)) {
+                        rowData.add(cell.getDateCellValue().toString());
+                    } else {
+                        rowData.add(String.valueOf(cell.getNumericCellValue()));
+                    }
+                }
 
-                            case NUMERIC -> {
-                                if (DateUtil.isCellDateFormatted(cell)) {
-                                    rowData.add(cell.getDateCellValue().toString());
-                                } else {
-                                    rowData.add(String.valueOf(cell.getNumericCellValue()));
-                                }
-                            }
+                case BOOLEAN -> rowData.add(String.valueOf(cell.getBooleanCellValue()));
 
-                            case BOOLEAN -> rowData.add(String.valueOf(cell.getBooleanCellValue()));
+                case FORMULA -> rowData.add(cell.getCellFormula());
 
-                            case FORMULA -> rowData.add(cell.getCellFormula());
+                case BLANK -> rowData.add("");
 
-                            case BLANK -> rowData.add("");
+                default -> rowData.add("");
+            }
+        }
+        return rowData;
+    }
 
-                            default -> rowData.add("");
-                        }
-                    }
+    /**
+     * Streams the rows of the first sheet into the idempotent upsert import, so re-uploading a generated
+     * Excel file only re-writes the batches whose content changed. A workbook cannot be read from an offset,
+     * so a resumed import reads past the committed rows without mapping them.
+     */
+    public ImportSummary upsertExcelFile(MultipartFile multipartFile) throws IOException {
+        return studentImportService.upsertFile(multipartFile, this::openRows);
+    }
 
-                    data.put(row.getRowNum(), rowData);
-                }
-                batch.clear();
+    private StudentImportService.Rows openRows(Path file, long byteOffset) throws IOException {
+        IOUtils.setByteArrayMaxOverride(600_000_000);
+        Workbook workbook = StreamingReader.builder()
+                .rowCacheSize(10000)
+                .bufferSize(4096)
+                .open(file.toFile());
+        Iterator<Row> sheetRows = workbook.getSheetAt(0).rowIterator();
+        return new StudentImportService.Rows() {
+            @Override
+            public boolean hasNext() {
+                return sheetRows.hasNext();
             }
-        }
-        log.info("Excel file read successfully with " + data.size() + " rows.");
-        return  data;
+
+            @Override
+            public List<String> next() {
+                return readRow(sheetRows.next());
+            }
+
+            @Override
+            public long position() {
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                workbook.close();
+            }
+        };
     }
 
     /**
@@ -228,30 +320,19 @@ public class ExcelServiceImpl implements ExcelService {
      * It returns a success message with the location of the saved CSV file.
      */
     public String convertExcelFileToCsv(MultipartFile multipartFile) throws IOException {
+        try (PipelineMetrics.Job job = metrics.startJob("excel.convert")) {
+            Map<Integer, List<String>> excelData = job.stage("read", () -> readExcelFile(multipartFile));
 
-        Map<Integer, List<String>> excelData = readExcelFile(multipartFile);
-
-        ByteArrayInputStream csvData = convertExcelDatatoCsv(excelData);
+            ByteArrayInputStream csvData = job.stage("convert", () -> convertExcelDatatoCsv(excelData));
+            job.rows(excelData.size());
+            job.bytes(csvData.available());
 
-        String baseDir;
-        String os = System.getProperty("os.name").toLowerCase();
-
-        if (os.contains("win")) {
-            baseDir = "C:\\var\\log\\applications\\API\\dataprocessing\\";
-        } else {
-            baseDir = "/var/log/applications/API/dataprocessing/";
-        }
-
-        Path basePath = Paths.get(baseDir);
-
-        if (!Files.exists(basePath)) {
-            Files.createDirectories(basePath);
+            return job.stage("write", () -> saveCsvFile(csvData));
         }
+    }
 
-
-        File currentDirectory =  new File(baseDir);
-        String path = currentDirectory.getAbsolutePath();
-        String fileLocation = Paths.get(baseDir, "student_data.csv").toString();
+    private String saveCsvFile(ByteArrayInputStream csvData) throws IOException {
+        String fileLocation = dataProcessingDirectory.resolve("student_data.csv").toString();
 
         try (FileOutputStream outputStream = new FileOutputStream(fileLocation)) {
             byte[] buffer = new byte[csvData.available()];
@@ -267,10 +348,59 @@ public class ExcelServiceImpl implements ExcelService {
 
     /**
      * Exports student data from the database to an Excel file and returns it as a byte array.
-     * The method creates an Excel workbook, populates it with student data, and then writes the workbook to a byte array output stream.
-     * Finally, it returns the byte array representation of the Excel file.
+     *
+     * @param className The class to export, or null for every student.
+     */
+    public byte[] exportExcelFile(String className) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        exportExcelFile(className, bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Exports student data from the database to an Excel file written to the given stream, which is left open.
+     * With {@code excel.writer=direct} the sheet XML is encoded straight into the zip on the stream in one pass;
+     * with {@code excel.writer=sxssf} POI's SXSSFWorkbook builds the rows in a temporary sheet file and
+     * repackages it when the workbook is written. The columns are those the upload expects, with each student's
+     * ID in the first one, so an export can be upserted back.
+     *
+     * @param className The class to export, or null for every student.
      */
-    public byte[] exportExcelFile() throws IOException {
+    public void exportExcelFile(String className, OutputStream outputStream) throws IOException {
+        try (PipelineMetrics.Job job = metrics.startJob("excel.export")) {
+            List<Student> students = job.stage("fetch", () -> studentService.getStudentsForExport(className));
+            CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+            int rowsWritten = isDirectWriter()
+                    ? job.stage("write", () -> writeStudentRows(students.iterator(), countingStream))
+                    : writeStudentWorkbook(students.iterator(), countingStream, job);
+            countingStream.flush();
+            job.rows(rowsWritten);
+            job.bytes(countingStream.getCount());
+        }
+    }
+
+    private int writeStudentRows(Iterator<Student> studentsIterator, OutputStream outputStream) throws IOException {
+        try (XlsxStreamWriter xlsx = new XlsxStreamWriter(outputStream, "Students")) {
+            xlsx.row().cell("Student ID").cell("First Name").cell("Last Name").cell("Date of Birth").cell("Class Name")
+                    .cell("Score");
+            int rowNum = 0;
+            while (studentsIterator.hasNext()) {
+                Student student = studentsIterator.next();
+                rowNum++;
+                xlsx.row()
+                        .cell(student.getStudentId())
+                        .cell(student.getFirstName())
+                        .cell(student.getLastName())
+                        .cell(student.getDob() != null ? student.getDob().toString() : "")
+                        .cell(student.getClassName())
+                        .cell(student.getScore());
+            }
+            return rowNum;
+        }
+    }
+
+    private int writeStudentWorkbook(Iterator<Student> studentsIterator, OutputStream outputStream,
+                                     PipelineMetrics.Job job) throws IOException {
         SXSSFWorkbook workbook = new SXSSFWorkbook(100);
         Sheet sheet = workbook.createSheet("Students");
 
@@ -281,30 +411,36 @@ public class ExcelServiceImpl implements ExcelService {
             header.createCell(i).setCellValue(columns[i]);
         }
 
-        Iterator<Student> studentsIterator = studentService.getAllStudents().iterator();
+        // Rows leaving the 100-row window are flushed to the temporary sheet file as they are created
+        int rowsWritten = job.stage("rows", () -> writeStudentRows(sheet, studentsIterator));
+
+        job.stage("serialize", () -> {
+            workbook.write(outputStream);
+            return outputStream;
+        });
+
+        workbook.dispose();
+        workbook.close();
+        return rowsWritten;
+    }
+
+    private boolean isDirectWriter() {
+        return !"sxssf".equalsIgnoreCase(writer);
+    }
 
+    private int writeStudentRows(Sheet sheet, Iterator<Student> studentsIterator) {
         int rowNum = 1;
         while (studentsIterator.hasNext()) {
             Student student = studentsIterator.next();
             Row row = sheet.createRow(rowNum++);
 
-            row.createCell(0).setCellValue(rowNum - 1); // ID Column
+            row.createCell(0).setCellValue(student.getStudentId());
             row.createCell(1).setCellValue(student.getFirstName());
             row.createCell(2).setCellValue(student.getLastName());
             row.createCell(3).setCellValue(student.getDob() != null ? student.getDob().toString() : "");
             row.createCell(4).setCellValue(student.getClassName());
             row.createCell(5).setCellValue(student.getScore());
         }
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        workbook.write(bos);
-
-        workbook.dispose();
-        workbook.close();
-
-        return bos.toByteArray();
+        return rowNum - 1;
     }
-
-
-
 }
@@ -1,24 +1,32 @@
 package com.compulynx.excel.service.impl;
 
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.metrics.CountingOutputStream;
+import com.compulynx.excel.metrics.PipelineMetrics;
 import com.compulynx.excel.service.PdfConverterService;
 import com.itextpdf.html2pdf.ConverterProperties;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Table;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.util.List;
 
 @Configuration
+@Lazy
+@RequiredArgsConstructor
 class PdfConverterServiceImpl implements PdfConverterService {
     @Value("${server.port}")
     public String servicePort;
 
+    private final PipelineMetrics metrics;
+
     /**
      * Converts HTML content to PDF format and returns it as a ByteArrayOutputStream.
      *
@@ -31,7 +39,10 @@ class PdfConverterServiceImpl implements PdfConverterService {
         converterProperties.setBaseUri("http://localhost:" + servicePort);
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        com.itextpdf.html2pdf.HtmlConverter.convertToPdf(html, outputStream, converterProperties);
+        metrics.time("pdf.html", "convert", () -> {
+            com.itextpdf.html2pdf.HtmlConverter.convertToPdf(html, outputStream, converterProperties);
+            return outputStream;
+        });
         return outputStream;
     }
 
@@ -42,34 +53,46 @@ class PdfConverterServiceImpl implements PdfConverterService {
      * @param os       The OutputStream where the generated PDF will be written.
      */
     public void convertLargeDataToPdf(Iterable<Student> students, OutputStream os) {
-        PdfWriter writer = new PdfWriter(os);
-        PdfDocument pdf = new PdfDocument(writer);
-        Document document = new Document(pdf);
+        try (PipelineMetrics.Job job = metrics.startJob("pdf.export")) {
+            CountingOutputStream countingStream = new CountingOutputStream(os);
+            PdfWriter writer = new PdfWriter(countingStream);
+            PdfDocument pdf = new PdfDocument(writer);
+            Document document = new Document(pdf);
+
+            // Create a table with specific column widths
+            Table table = new Table(new float[]{1, 3, 3, 3, 3, 2});
+            table.addHeaderCell("ID");
+            table.addHeaderCell("First Name");
+            table.addHeaderCell("Last Name");
+            table.addHeaderCell("DOB");
+            table.addHeaderCell("Class");
+            table.addHeaderCell("Score");
 
-        // Create a table with specific column widths
-        Table table = new Table(new float[]{1, 3, 3, 3, 3, 2});
-        table.addHeaderCell("ID");
-        table.addHeaderCell("First Name");
-        table.addHeaderCell("Last Name");
-        table.addHeaderCell("DOB");
-        table.addHeaderCell("Class");
-        table.addHeaderCell("Score");
+            // Adding the table every 1000 rows lays out and writes the pending rows
+            int count = job.stage("layout", () -> {
+                int rows = 0;
+                for (Student s : students) {
+                    table.addCell(String.valueOf(rows + 1));
+                    table.addCell(s.getFirstName());
+                    table.addCell(s.getLastName());
+                    table.addCell(s.getDob().toString());
+                    table.addCell(s.getClassName());
+                    table.addCell(String.valueOf(s.getScore()));
 
-        int count = 0;
-        for (Student s : students) {
-            table.addCell(String.valueOf(count + 1));
-            table.addCell(s.getFirstName());
-            table.addCell(s.getLastName());
-            table.addCell(s.getDob().toString());
-            table.addCell(s.getClassName());
-            table.addCell(String.valueOf(s.getScore()));
+                    if (++rows % 1000 == 0) {
+                        document.add(table);
+                    }
+                }
+                return rows;
+            });
 
-            if (++count % 1000 == 0) {
+            job.stage("close", () -> {
                 document.add(table);
-            }
+                document.close();
+                return document;
+            });
+            job.rows(count);
+            job.bytes(countingStream.getCount());
         }
-
-        document.add(table);
-        document.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Collects the rows an import rejected into a CSV file in the data processing directory. Each line holds the
+ * row number in the uploaded file, the reasons and the original cell values, so the rows can be fixed and
+ * uploaded again. The file is only created once the first row is rejected.
+ * A resumed import appends to the reject file of its checkpoint, cut back to the size it had at the checkpoint.
+ */
+final class RejectFileWriter implements AutoCloseable {
+
+    private static final String[] HEADER = {"row", "reason", "studentId", "firstName", "lastName", "DOB", "class",
+            "score"};
+
+    private final DataProcessingDirectory dataProcessingDirectory;
+    private String id;
+    private Path file;
+    private CSVPrinter printer;
+    private long count;
+
+    RejectFileWriter(DataProcessingDirectory dataProcessingDirectory) {
+        this.dataProcessingDirectory = dataProcessingDirectory;
+    }
+
+    /**
+     * Continues the reject file of a checkpoint, dropping the rows written after the checkpoint.
+     *
+     * @param id    The reject file id recorded in the checkpoint, or null if no row had been rejected.
+     * @param bytes The size of the reject file at the checkpoint.
+     * @param count The number of rows rejected up to the checkpoint.
+     */
+    static RejectFileWriter resume(DataProcessingDirectory dataProcessingDirectory, String id, long bytes, long count)
+            throws IOException {
+        RejectFileWriter writer = new RejectFileWriter(dataProcessingDirectory);
+        Path file = id == null ? null : fileOf(dataProcessingDirectory, id);
+        if (file == null || !Files.exists(file)) {
+            return writer;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes);
+        }
+        writer.id = id;
+        writer.file = file;
+        writer.count = count;
+        writer.printer = new CSVPrinter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND), CSVFormat.DEFAULT);
+        return writer;
+    }
+
+    /**
+     * @param rowNumber The 1-based number of the row in the uploaded file, the header being row 1.
+     * @param row       The cell values of the row.
+     * @param reason    Why the row was rejected.
+     */
+    void reject(long rowNumber, List<String> row, String reason) {
+        try {
+            if (printer == null) {
+                id = UUID.randomUUID().toString();
+                file = fileOf(dataProcessingDirectory, id);
+                printer = new CSVPrinter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), CSVFormat.DEFAULT);
+                printer.printRecord((Object[]) HEADER);
+            }
+            printer.print(rowNumber);
+            printer.print(reason);
+            printer.printRecord(row);
+            count++;
+        } catch (IOException e) {
+            throw new RuntimeException("Error while writing rejected row " + rowNumber + ": " + e.getMessage());
+        }
+    }
+
+    /** The id of the reject file, or null if no row was rejected. */
+    String getId() {
+        return id;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /** Writes the buffered rows to the file and returns its size, to be recorded in a checkpoint. */
+    long flush() {
+        if (printer == null) {
+            return 0;
+        }
+        try {
+            printer.flush();
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while flushing reject file " + id + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (printer != null) {
+            try {
+                printer.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error while closing reject file " + id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Returns the reject file with the given id, if it exists. */
+    static Optional<Path> find(DataProcessingDirectory dataProcessingDirectory, String id) throws IOException {
+        try {
+            // Only ids this class generated are mapped to a path, so the id cannot point outside the directory
+            id = UUID.fromString(id).toString();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        Path file = fileOf(dataProcessingDirectory, id);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /** Deletes the reject file with the given id, if there is one. */
+    static void delete(DataProcessingDirectory dataProcessingDirectory, String id) throws IOException {
+        Optional<Path> file = id == null ? Optional.empty() : find(dataProcessingDirectory, id);
+        if (file.isPresent()) {
+            Files.deleteIfExists(file.get());
+        }
+    }
+
+    private static Path fileOf(DataProcessingDirectory dataProcessingDirectory, String id) throws IOException {
+        return dataProcessingDirectory.resolve("rejects-" + id + ".csv");
+    }
+}
@@ -0,0 +1,367 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.dto.ImportSummary;
+import com.compulynx.excel.entity.ImportBatch;
+import com.compulynx.excel.entity.ImportCheckpoint;
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.ImportBatchRepository;
+import com.compulynx.excel.repository.ImportCheckpointRepository;
+import com.compulynx.excel.repository.StudentBatchRepository;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.service.StudentImportService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+public class StudentImportServiceImpl implements StudentImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentImportServiceImpl.class);
+    static final int IMPORT_BATCH_SIZE = 5_000;
+    private static final String SPOOL_PREFIX = "upload-";
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final StudentBatchRepository studentBatchRepository;
+    private final StudentChangeRepository studentChangeRepository;
+    private final ImportBatchRepository importBatchRepository;
+    private final ImportCheckpointRepository importCheckpointRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipelineMetrics metrics;
+    private final DataProcessingDirectory dataProcessingDirectory;
+
+    /** How long the checkpoint of a failed import is kept for a retry. */
+    @Value("${imports.checkpoint.ttl:P7D}")
+    Duration checkpointTtl;
+
+    /** Hashes of the files being imported, so the same file is never imported by two requests at once. */
+    private final Set<String> runningImports = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Imports an uploaded file idempotently. The first row is skipped as the header, the rest are mapped to
+     * students and written in batches of 5,000 with INSERT ... ON CONFLICT (student_id) DO UPDATE. Each batch is
+     * hashed first, and a batch whose hash is already in the import ledger is skipped without touching the
+     * students table, so uploading an identical file a second time costs little more than parsing it.
+     * Scores are stored as they appear in the file, so importing an export of the table changes nothing.
+     * When the import changed any rows, ledger entries of earlier imports may now describe overwritten rows,
+     * so only the batches of this import are kept in the ledger.
+     * Every row is validated before it is mapped. Invalid rows do not stop the import: they are written with
+     * their reasons to a reject file that can be downloaded with the id returned in the summary.
+     * The upload is spooled to the data processing directory and hashed, and each batch commits together with
+     * a checkpoint of the file: the last committed row and its byte offset. If the import fails or the
+     * application restarts, uploading the same file again resumes after the last committed row. CSV files are
+     * read from the byte offset; Excel files skip the committed rows without mapping them. The spooled file and
+     * the checkpoint are deleted once the import completes; those of imports that are never retried are deleted by
+     * {@link #sweepAbandonedImports()}. A {@link StudentsChangedEvent#imported()} is published whenever this call
+     * changed rows, also when it fails after some of its batches committed.
+     *
+     * @param multipartFile The uploaded file, including the header row.
+     * @param rowSource     Opens the rows of the spooled file.
+     * @return A summary with the row, batch, affected and rejected row counts of the import.
+     */
+    public ImportSummary upsertFile(MultipartFile multipartFile, RowSource rowSource) throws IOException {
+        String fileHash = metrics.time("import", "spool", () -> spool(multipartFile));
+        if (!runningImports.add(fileHash)) {
+            throw new RuntimeException("An import of this file is already running: " + fileHash);
+        }
+        ImportSummary summary = new ImportSummary();
+        long affectedBefore = 0;
+        try {
+            ImportCheckpoint checkpoint = importCheckpointRepository.findById(fileHash)
+                    .orElseGet(() -> newCheckpoint(fileHash, multipartFile.getOriginalFilename()));
+            affectedBefore = checkpoint.getAffectedRows();
+            Path spooled = spooledFile(fileHash);
+            importRows(spooled, rowSource, checkpoint, summary);
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (summary.getAffectedRows() > 0) {
+                    importBatchRepository.deleteImportedBefore(checkpoint.getStartedAt());
+                }
+                importCheckpointRepository.deleteById(fileHash);
+            });
+            Files.deleteIfExists(spooled);
+        } finally {
+            runningImports.remove(fileHash);
+            // Every batch commits on its own, so an import that fails halfway has changed the table as well
+            if (summary.getAffectedRows() > affectedBefore) {
+                eventPublisher.publishEvent(StudentsChangedEvent.imported());
+            }
+        }
+        sweepAbandonedImports();
+        return summary;
+    }
+
+    /**
+     * Deletes what imports that were never retried left behind: checkpoints not updated within
+     * {@code imports.checkpoint.ttl}, together with their spooled uploads and reject files, and spooled uploads
+     * older than that without a checkpoint, such as a file whose first batch failed. Runs every hour and after
+     * each completed import. An import of the same file that is running is left alone.
+     */
+    @Scheduled(fixedDelayString = "${imports.checkpoint.sweep-interval:PT1H}",
+            initialDelayString = "${imports.checkpoint.sweep-interval:PT1H}")
+    public void sweepAbandonedImports() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(checkpointTtl);
+        try {
+            for (ImportCheckpoint checkpoint : importCheckpointRepository.findByUpdatedAtBefore(expiredBefore)) {
+                String fileHash = checkpoint.getFileHash();
+                if (!runningImports.add(fileHash)) {
+                    continue;
+                }
+                try {
+                    importCheckpointRepository.deleteById(fileHash);
+                    Files.deleteIfExists(spooledFile(fileHash));
+                    RejectFileWriter.delete(dataProcessingDirectory, checkpoint.getRejectFileId());
+                } finally {
+                    runningImports.remove(fileHash);
+                }
+            }
+
+            FileTime modifiedBefore = FileTime.from(Instant.now().minus(checkpointTtl));
+            for (Path file : dataProcessingDirectory.list(SPOOL_PREFIX + "*")) {
+                if (Files.getLastModifiedTime(file).compareTo(modifiedBefore) >= 0) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                if (name.endsWith(PARTIAL_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                String fileHash = name.substring(SPOOL_PREFIX.length());
+                if (!runningImports.add(fileHash)) {
+                    continue;
+                }
+                try {
+                    if (!importCheckpointRepository.existsById(fileHash)) {
+                        Files.deleteIfExists(file);
+                    }
+                } finally {
+                    runningImports.remove(fileHash);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep abandoned imports: {}", e.getMessage());
+        }
+    }
+
+    /** Imports the rows after the checkpoint, counting them in the summary as the batches commit. */
+    private void importRows(Path spooled, RowSource rowSource, ImportCheckpoint checkpoint, ImportSummary summary)
+            throws IOException {
+        summary.setBatches(checkpoint.getBatches());
+        summary.setSkippedBatches(checkpoint.getSkippedBatches());
+        summary.setAffectedRows(checkpoint.getAffectedRows());
+        summary.setResumedFromRow(checkpoint.getLastCommittedRow());
+
+        long rowNumber = checkpoint.getLastCommittedRow();
+        boolean seek = rowNumber > 0 && checkpoint.getByteOffset() >= 0;
+        try (Rows rows = rowSource.open(spooled, seek ? checkpoint.getByteOffset() : 0);
+             RejectFileWriter rejects = RejectFileWriter.resume(dataProcessingDirectory, checkpoint.getRejectFileId(),
+                     checkpoint.getRejectFileBytes(), checkpoint.getRejectedRows())) {
+            if (!seek) {
+                // Read past the header, and the committed rows of a resumed import that cannot seek
+                rowNumber = Math.max(rowNumber, 1);
+                for (long skipped = 0; skipped < rowNumber && rows.hasNext(); skipped++) {
+                    rows.next();
+                }
+            }
+
+            List<Student> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            while (rows.hasNext()) {
+                List<String> row = rows.next();
+                rowNumber++;
+                String reason = StudentRowMapper.validate(row, 0);
+                if (reason != null) {
+                    rejects.reject(rowNumber, row, reason);
+                    continue;
+                }
+                batch.add(StudentRowMapper.toStudent(row, 0));
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    importBatch(batch, summary, advance(checkpoint, rowNumber, rows.position(), rejects));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(batch, summary, advance(checkpoint, rowNumber, rows.position(), rejects));
+            }
+
+            summary.setTotalRows(rowNumber - 1);
+            summary.setRejectedRows(rejects.getCount());
+            summary.setRejectFileId(rejects.getId());
+            metrics.recordRows("import.reject", rejects.getCount() - checkpoint.getRejectedRows());
+        }
+    }
+
+    /**
+     * Upserts one batch and records its hash in the ledger and the checkpoint of the file within the same
+     * transaction. A batch already in the ledger only moves the checkpoint forward.
+     */
+    private void importBatch(List<Student> batch, ImportSummary summary, ImportCheckpoint checkpoint) {
+        String batchHash = metrics.time("import.batch", "hash", () -> hash(batch));
+        summary.setBatches(summary.getBatches() + 1);
+        metrics.recordRows("import.batch", batch.size());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        if (importBatchRepository.existsById(batchHash)) {
+            summary.setSkippedBatches(summary.getSkippedBatches() + 1);
+            transaction.executeWithoutResult(status -> {
+                importBatchRepository.touch(List.of(batchHash), checkpoint.getStartedAt());
+                importCheckpointRepository.save(withCounts(checkpoint, summary));
+            });
+            return;
+        }
+
+        metrics.time("import.batch", "upsert", () -> transaction.execute(status -> {
+            long upserted = studentBatchRepository.upsert(batch, studentChangeRepository.nextVersion());
+            ImportBatch importBatch = new ImportBatch();
+            importBatch.setBatchHash(batchHash);
+            importBatch.setRowCount(batch.size());
+            importBatch.setImportedAt(checkpoint.getStartedAt());
+            importBatchRepository.save(importBatch);
+            summary.setAffectedRows(summary.getAffectedRows() + upserted);
+            importCheckpointRepository.save(withCounts(checkpoint, summary));
+            return upserted;
+        }));
+    }
+
+    private ImportCheckpoint newCheckpoint(String fileHash, String fileName) {
+        ImportCheckpoint checkpoint = new ImportCheckpoint();
+        checkpoint.setFileHash(fileHash);
+        checkpoint.setFileName(fileName);
+        checkpoint.setLastCommittedRow(0L);
+        checkpoint.setByteOffset(0L);
+        checkpoint.setBatches(0L);
+        checkpoint.setSkippedBatches(0L);
+        checkpoint.setAffectedRows(0L);
+        checkpoint.setRejectedRows(0L);
+        checkpoint.setRejectFileBytes(0L);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        return checkpoint;
+    }
+
+    /** Moves the checkpoint to the given row, flushing the rows rejected so far so they survive a restart. */
+    private static ImportCheckpoint advance(ImportCheckpoint checkpoint, long rowNumber, long byteOffset,
+                                            RejectFileWriter rejects) {
+        checkpoint.setLastCommittedRow(rowNumber);
+        checkpoint.setByteOffset(byteOffset);
+        checkpoint.setRejectFileBytes(rejects.flush());
+        checkpoint.setRejectFileId(rejects.getId());
+        checkpoint.setRejectedRows(rejects.getCount());
+        return checkpoint;
+    }
+
+    private static ImportCheckpoint withCounts(ImportCheckpoint checkpoint, ImportSummary summary) {
+        checkpoint.setBatches(summary.getBatches());
+        checkpoint.setSkippedBatches(summary.getSkippedBatches());
+        checkpoint.setAffectedRows(summary.getAffectedRows());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return checkpoint;
+    }
+
+    /**
+     * Copies the upload to the data processing directory while hashing it, and names the copy after the hash.
+     * A copy left by an earlier attempt of the same file is kept, so its checkpoint offsets stay valid.
+     *
+     * @return The SHA-256 of the file.
+     */
+    private String spool(MultipartFile multipartFile) throws IOException {
+        Path partial = dataProcessingDirectory.resolve(SPOOL_PREFIX + UUID.randomUUID() + PARTIAL_SUFFIX);
+        String fileHash;
+        try (DigestInputStream in = new DigestInputStream(multipartFile.getInputStream(), sha256())) {
+            Files.copy(in, partial);
+            fileHash = HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Path spooled = spooledFile(fileHash);
+        if (Files.exists(spooled)) {
+            Files.delete(partial);
+            // Keeps the sweep from taking the copy away before the import claims the file
+            Files.setLastModifiedTime(spooled, FileTime.from(Instant.now()));
+        } else {
+            Files.move(partial, spooled, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return fileHash;
+    }
+
+    private Path spooledFile(String fileHash) throws IOException {
+        return dataProcessingDirectory.resolve(SPOOL_PREFIX + fileHash);
+    }
+
+    /**
+     * Returns the reject file written by an earlier import.
+     *
+     * @param rejectFileId The reject file id from the import summary.
+     * @return The path of the reject file, or an empty Optional if there is no reject file with that id.
+     */
+    public Optional<Path> getRejectFile(String rejectFileId) throws IOException {
+        return RejectFileWriter.find(dataProcessingDirectory, rejectFileId);
+    }
+
+    /**
+     * Any write that does not come from an idempotent import may change rows covered by a recorded batch,
+     * so the ledger is cleared and the next upload of those batches is written again.
+     */
+    @EventListener
+    public void clearLedgerOnOtherWrites(StudentsChangedEvent event) {
+        if (event.scope() != StudentsChangedEvent.Scope.IMPORT) {
+            importBatchRepository.deleteAllInBatch();
+        }
+    }
+
+    /** SHA-256 over the mapped values of the batch, so formatting differences such as "12" and "12.0" hash alike. */
+    static String hash(List<Student> batch) {
+        MessageDigest digest = sha256();
+        StringBuilder row = new StringBuilder(64);
+        for (Student student : batch) {
+            row.setLength(0);
+            row.append(student.getStudentId()).append('\u001f')
+                    .append(student.getFirstName()).append('\u001f')
+                    .append(student.getLastName()).append('\u001f')
+                    .append(student.getDob()).append('\u001f')
+                    .append(student.getClassName()).append('\u001f')
+                    .append(student.getScore()).append('\n');
+            digest.update(row.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
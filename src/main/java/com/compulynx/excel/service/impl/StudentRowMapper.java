@@ -0,0 +1,207 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.entity.Student;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.List;
+
+/**
+ * Maps one parsed row (studentId, firstName, lastName, dob, className, score) of an uploaded file to a Student.
+ * Numeric columns may be written as decimals so that Excel values such as "12.0" and "1.2E7" are accepted; they
+ * are parsed exactly, so IDs above 2^53 are not rounded.
+ */
+public final class StudentRowMapper {
+
+    static final int COLUMNS = 6;
+
+    /** Length of the VARCHAR columns of the students table. */
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private StudentRowMapper() {
+    }
+
+    /**
+     * @param row             The cell values of the row in file column order.
+     * @param scoreAdjustment The amount added to the score read from the file.
+     * @return A new Student entity holding the row values.
+     * @throws ArithmeticException If the adjusted score does not fit an int, which {@link #validate} rejects.
+     */
+    public static Student toStudent(List<String> row, int scoreAdjustment) {
+        Student student = new Student();
+
+        student.setStudentId(parseWholeNumber(row.get(0)));
+        student.setFirstName(row.get(1));
+        student.setLastName(row.get(2));
+        student.setDob(LocalDate.parse(row.get(3)));
+        student.setClassName(row.get(4));
+        student.setScore(Math.addExact(Math.toIntExact(parseWholeNumber(row.get(5))), scoreAdjustment));
+
+        return student;
+    }
+
+    /**
+     * Checks that {@link #toStudent} can map the row and that the values fit the students table, by scanning
+     * the characters of each cell instead of parsing and catching exceptions.
+     *
+     * @param row             The cell values of the row in file column order.
+     * @param scoreAdjustment The amount {@link #toStudent} adds to the score, which must still fit an int.
+     * @return null if the row is valid, otherwise the reasons it is not, separated by "; ".
+     */
+    public static String validate(List<String> row, int scoreAdjustment) {
+        if (row.size() < COLUMNS) {
+            return "expected " + COLUMNS + " columns but found " + row.size();
+        }
+        StringBuilder reasons = null;
+        reasons = append(reasons, checkWholeNumber("studentId", row.get(0), 1, Long.MAX_VALUE));
+        reasons = append(reasons, checkText("firstName", row.get(1)));
+        reasons = append(reasons, checkText("lastName", row.get(2)));
+        reasons = append(reasons, checkDate("DOB", row.get(3)));
+        reasons = append(reasons, checkText("class", row.get(4)));
+        reasons = append(reasons, checkWholeNumber("score", row.get(5),
+                Math.max(Integer.MIN_VALUE, (long) Integer.MIN_VALUE - scoreAdjustment),
+                Math.min(Integer.MAX_VALUE, (long) Integer.MAX_VALUE - scoreAdjustment)));
+        return reasons == null ? null : reasons.toString();
+    }
+
+    private static StringBuilder append(StringBuilder reasons, String reason) {
+        if (reason == null) {
+            return reasons;
+        }
+        if (reasons == null) {
+            return new StringBuilder(reason);
+        }
+        return reasons.append("; ").append(reason);
+    }
+
+    private static String checkText(String column, String value) {
+        if (value == null || value.isBlank()) {
+            return column + " is blank";
+        }
+        if (value.length() > MAX_TEXT_LENGTH) {
+            return column + " is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    /** Parses a value accepted by {@link #checkWholeNumber}, ignoring the whitespace around it. */
+    private static long parseWholeNumber(String value) {
+        String number = value.strip();
+        return isPlainInteger(number) ? Long.parseLong(number) : new BigDecimal(number).longValueExact();
+    }
+
+    /** Accepts decimal forms such as "12", "12.0" and "1.2E7" when they are whole numbers within [min, max]. */
+    private static String checkWholeNumber(String column, String value, long min, long max) {
+        String number = value == null ? null : value.strip();
+        if (number == null || !isDecimal(number)) {
+            return column + " is not a number: '" + value + "'";
+        }
+        if (isPlainInteger(number)) {
+            long whole = Long.parseLong(number);
+            return whole < min || whole > max ? column + " is out of range: '" + value + "'" : null;
+        }
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(number);
+        } catch (NumberFormatException e) {
+            // Only an exponent beyond the int range gets here
+            return column + " is out of range: '" + value + "'";
+        }
+        if (decimal.signum() != 0 && decimal.stripTrailingZeros().scale() > 0) {
+            return column + " is not a whole number: '" + value + "'";
+        }
+        if (decimal.compareTo(BigDecimal.valueOf(min)) < 0 || decimal.compareTo(BigDecimal.valueOf(max)) > 0) {
+            return column + " is out of range: '" + value + "'";
+        }
+        return null;
+    }
+
+    /** Matches [+-]digits with at most 18 digits, which Long.parseLong reads without overflow. */
+    private static boolean isPlainInteger(String value) {
+        int start = !value.isEmpty() && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        if (value.length() == start || value.length() - start > 18) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Matches [+-]digits[.digits][(e|E)[+-]digits] with at least one digit before the exponent. */
+    private static boolean isDecimal(String value) {
+        int i = 0;
+        int length = value.length();
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    /** Accepts the yyyy-MM-dd dates LocalDate.parse reads, checking the day against the length of the month. */
+    private static String checkDate(String column, String value) {
+        if (value == null || value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return column + " is not a yyyy-MM-dd date: '" + value + "'";
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return column + " is not a yyyy-MM-dd date: '" + value + "'";
+        }
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return column + " is not a valid date: '" + value + "'";
+        }
+        return null;
+    }
+
+    /** Returns the number written in value[from, to), or -1 if it contains anything but digits. */
+    private static int digits(String value, int from, int to) {
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,18 +1,51 @@
 package com.compulynx.excel.service.impl;
 
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.dto.BulkOperationResponse;
+import com.compulynx.excel.dto.Leaderboard;
+import com.compulynx.excel.dto.LeaderboardResponse;
+import com.compulynx.excel.dto.SavedStudents;
+import com.compulynx.excel.dto.StudentChange;
+import com.compulynx.excel.dto.StudentField;
+import com.compulynx.excel.dto.StudentPatch;
 import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.index.StudentColumnarIndexHolder;
+import com.compulynx.excel.index.StudentNameIndex;
+import com.compulynx.excel.index.StudentNameIndexHolder;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.StudentBatchRepository;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.repository.StudentLeaderboardRepository;
 import com.compulynx.excel.repository.StudentRepository;
+import com.compulynx.excel.repository.StudentStreamRepository;
 import com.compulynx.excel.service.StudentService;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -20,35 +53,72 @@ import java.util.stream.Stream;
 @RequiredArgsConstructor
 public class StudentServiceImpl implements StudentService {
 
+    private static final int SCORE_ADJUSTMENT = 10;
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+    private static final int UPDATE_BATCH_SIZE = 1_000;
+    private static final int MAX_SEARCH_RESULTS = 1_000;
+    private static final int MAX_LEADERBOARD_SIZE = 1_000;
+
+    private static final Logger log = LoggerFactory.getLogger(StudentServiceImpl.class);
+
     private final StudentRepository studentRepository;
+    private final StudentBatchRepository studentBatchRepository;
+    private final StudentChangeRepository studentChangeRepository;
+    private final StudentLeaderboardRepository studentLeaderboardRepository;
+    private final StudentStreamRepository studentStreamRepository;
+    private final StudentColumnarIndexHolder studentIndex;
+    private final StudentNameIndexHolder studentNameIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PipelineMetrics metrics;
+    private final DataProcessingDirectory dataProcessingDirectory;
+
+    /** How long the tombstone of a delete is kept for change feed clients that have not synced since. */
+    @Value("${students.changes.tombstone-retention:P30D}")
+    Duration tombstoneRetention;
 
     /**
      * This method takes raw data as a list of lists of strings, where each inner list represents a row of data.
      * It skips the first row (assumed to be headers), maps each subsequent row to a Student entity, and saves all
      * students to the database. The score is adjusted by adding 10 to the original value.
+     * Rows that fail validation are skipped instead of failing the whole upload; they are written with their
+     * reasons to a reject file whose id is returned with the saved students. Every saved student is stamped with
+     * the change version of the upload.
      *
      * @param rawData A list of lists of strings representing the raw data to be saved.
-     * @return A list of Student entities that were saved to the database.
+     * @return The Student entities that were saved to the database, and the number and file of rejected rows.
      */
-    public List<Student> saveStudentData(List<List<String>> rawData) {
-
-        List<Student> students = rawData.stream()
-            .skip(1)
-            .map(row -> {
-                Student student = new Student();
-
-                student.setStudentId(Double.valueOf(row.get(0)).longValue());
-                student.setFirstName(row.get(1));
-                student.setLastName(row.get(2));
-                student.setDob(LocalDate.parse(row.get(3)));
-                student.setClassName(row.get(4));
-                student.setScore(Double.valueOf(row.get(5)).intValue() + 10);
+    @Transactional
+    public SavedStudents saveStudentData(List<List<String>> rawData) {
 
-                return student;
-            })
-            .collect(Collectors.toList());
+        try (PipelineMetrics.Job job = metrics.startJob("student.save");
+             RejectFileWriter rejects = new RejectFileWriter(dataProcessingDirectory)) {
+            List<Student> students = job.stage("map", () -> {
+                List<Student> mapped = new ArrayList<>(Math.max(rawData.size() - 1, 0));
+                for (int i = 1; i < rawData.size(); i++) {
+                    List<String> row = rawData.get(i);
+                    String reason = StudentRowMapper.validate(row, SCORE_ADJUSTMENT);
+                    if (reason != null) {
+                        rejects.reject(i + 1, row, reason);
+                    } else {
+                        mapped.add(StudentRowMapper.toStudent(row, SCORE_ADJUSTMENT));
+                    }
+                }
+                return mapped;
+            });
+            if (rejects.getCount() > 0) {
+                log.warn("Rejected {} of {} rows, see reject file {}", rejects.getCount(), rawData.size() - 1,
+                        rejects.getId());
+                metrics.recordRows("import.reject", rejects.getCount());
+            }
 
-        return studentRepository.saveAll(students);
+            List<Student> saved = job.stage("saveAll", () -> {
+                stampChange(students);
+                return studentRepository.saveAll(students);
+            });
+            job.rows(saved.size());
+            eventPublisher.publishEvent(StudentsChangedEvent.saved(saved));
+            return new SavedStudents(saved, rejects.getCount(), rejects.getId());
+        }
     }
 
     /** This method retrieves all students from the database and returns them as a list.
@@ -56,20 +126,104 @@ public class StudentServiceImpl implements StudentService {
      * @return A list of all Student entities in the database.
      */
     public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+        return metrics.time("student", "findAll", studentRepository::findAll);
+    }
+
+    /** This method retrieves the students to export: all of them, or only the students of one class.
+     *
+     * @param className The class to export, or null or blank for every student.
+     * @return A list of the Student entities to export.
+     */
+    public List<Student> getStudentsForExport(String className) {
+        if (className == null || className.isBlank()) {
+            return getAllStudents();
+        }
+        return metrics.time("student", "findByClassName",
+                () -> studentRepository.findByClassNameOrderByStudentId(className));
     }
 
-    /** This method deletes all student records from the database. */
-    public void deleteAllStudents() {
-        studentRepository.deleteAll();
+    /** This method streams the students, all of them or only those of one class, in ID order from a database
+     * cursor, so only one fetch of rows is held at a time however many students there are.
+     *
+     * @param className The class to stream, or null or blank for every student.
+     * @param fields    The fields to read; the others are left null.
+     * @param consumer  Receives the students, one at a time, while the rows are read.
+     */
+    @Transactional(readOnly = true)
+    public void streamStudents(String className, Set<StudentField> fields, Consumer<Student> consumer) {
+        try (PipelineMetrics.Job job = metrics.startJob("student.stream")) {
+            long[] rows = new long[1];
+            job.stage("stream", () -> {
+                studentStreamRepository.streamStudents(className == null || className.isBlank() ? null : className,
+                        fields, student -> {
+                            rows[0]++;
+                            consumer.accept(student);
+                        });
+                return null;
+            });
+            job.rows(rows[0]);
+        }
+    }
+
+    /** This method deletes all student records from the database with a single TRUNCATE statement
+     * instead of loading and deleting every entity. No tombstones are kept; change feed clients start over instead.
+     * The table is locked before it is counted, so no write can land between the count and the TRUNCATE; the
+     * change clock is taken first, in the same order as every other writer.
+     *
+     * @return The number of rows that were in the table before it was truncated.
+     */
+    @Transactional
+    public BulkOperationResponse deleteAllStudents() {
+        long version = studentChangeRepository.nextVersion();
+        studentRepository.lockTable();
+        long count = studentRepository.count();
+        studentChangeRepository.reset(version);
+        studentRepository.truncate();
+        eventPublisher.publishEvent(StudentsChangedEvent.bulk());
+        return new BulkOperationResponse("deleteAll", count);
+    }
+
+    /** This method deletes every student of the given class with a single set-based DELETE statement.
+     *
+     * @param className The class name whose students are to be deleted.
+     * @return The number of rows deleted.
+     */
+    @Transactional
+    public BulkOperationResponse deleteStudentsByClassName(String className) {
+        studentChangeRepository.recordDeletesByClassName(className, studentChangeRepository.nextVersion());
+        int deleted = studentRepository.deleteAllByClassNameInBulk(className);
+        eventPublisher.publishEvent(StudentsChangedEvent.bulk());
+        return new BulkOperationResponse("deleteByClassName", deleted);
+    }
+
+    /** This method deletes the students with the given IDs, issuing one DELETE ... WHERE student_id IN (...)
+     * statement per chunk of 10,000 IDs to stay within the database bind parameter limits.
+     *
+     * @param ids The IDs of the students to be deleted.
+     * @return The number of rows deleted.
+     */
+    @Transactional
+    public BulkOperationResponse deleteStudentsByIds(List<Long> ids) {
+        long version = studentChangeRepository.nextVersion();
+        long deleted = 0;
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + DELETE_CHUNK_SIZE, ids.size()));
+            studentChangeRepository.recordDeletes(chunk, version);
+            deleted += studentRepository.deleteAllByStudentIdInBulk(chunk);
+        }
+        eventPublisher.publishEvent(StudentsChangedEvent.deleted(ids));
+        return new BulkOperationResponse("deleteByIds", deleted);
     }
 
     /** This method deletes a student record from the database based on the provided ID.
      *
      * @param id The ID of the student to be deleted.
      */
+    @Transactional
     public void deleteStudentById(Long id) {
+        studentChangeRepository.recordDeletes(List.of(id), studentChangeRepository.nextVersion());
         studentRepository.deleteById(id);
+        eventPublisher.publishEvent(StudentsChangedEvent.deleted(List.of(id)));
     }
 
     /** This method updates an existing student record in the database. It first retrieves the student by ID,
@@ -79,6 +233,7 @@ public class StudentServiceImpl implements StudentService {
      * @param updatedStudent A Student object containing the updated information for the student.
      * @return The updated Student entity after being saved to the database.
      */
+    @Transactional
     public Student editStudent(Long id, Student updatedStudent) {
         return studentRepository.findById(id)
                 .map(student -> {
@@ -87,11 +242,43 @@ public class StudentServiceImpl implements StudentService {
                     student.setDob(updatedStudent.getDob());
                     student.setClassName(updatedStudent.getClassName());
                     student.setScore(updatedStudent.getScore());
-                    return studentRepository.save(student);
+                    stampChange(List.of(student));
+                    Student saved = studentRepository.save(student);
+                    eventPublisher.publishEvent(StudentsChangedEvent.saved(List.of(saved)));
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + id));
     }
 
+    /** This method applies partial updates to many students at once. The patches are consumed lazily and sent
+     * as batched JDBC UPDATE statements of 1,000 rows each, instead of one findById and save per student.
+     * Fields left null in a patch keep their current value.
+     *
+     * @param patches The patches to apply, each identifying its student by studentId.
+     * @return The number of rows updated.
+     */
+    @Transactional
+    public BulkOperationResponse patchStudents(Iterator<StudentPatch> patches) {
+        long updated = studentBatchRepository.patch(patches, UPDATE_BATCH_SIZE, studentChangeRepository.nextVersion());
+        eventPublisher.publishEvent(StudentsChangedEvent.bulk());
+        return new BulkOperationResponse("patch", updated);
+    }
+
+    /** This method adds the given amount to the score of every student in a class with a single set-based
+     * UPDATE statement.
+     *
+     * @param className The class whose scores are to be adjusted.
+     * @param delta     The amount to add to each score; negative values subtract.
+     * @return The number of rows updated.
+     */
+    @Transactional
+    public BulkOperationResponse addToScoreByClassName(String className, int delta) {
+        int updated = studentRepository.addToScoreByClassName(className, delta, studentChangeRepository.nextVersion(),
+                LocalDateTime.now());
+        eventPublisher.publishEvent(StudentsChangedEvent.bulk());
+        return new BulkOperationResponse("addToScoreByClassName", updated);
+    }
+
     /** This method retrieves a paginated and sorted list of students from the database. It allows filtering by class name if provided.
      *
      * @param page          The page number to retrieve (0-based index).
@@ -113,16 +300,78 @@ public class StudentServiceImpl implements StudentService {
         return studentRepository.findAll(pageable);
     }
 
-    /** This method retrieves a student from the database based on the provided ID.
+    /** This method retrieves a student based on the provided ID. It is served from the in-memory columnar index
+     * when that is enabled and up to date, and from the database otherwise.
      *
      * @param id The ID of the student to be retrieved.
      * @return The Student entity with the specified ID, or throws an exception if not found.
      */
     public Student getStudentById(Long id) {
-        return  studentRepository.findById(id)
+        return studentIndex.findById(id)
+                .or(() -> studentRepository.findById(id))
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + id));
     }
 
+    /** This method streams the students changed since the given change version, oldest change first: an UPSERT
+     * with the current values of every inserted or updated student and a DELETE for every deleted one.
+     * A client without a version, or whose version predates the last delete of every student or the newest
+     * compacted tombstone, gets a RESET followed by every current student instead. Everything is read from one REPEATABLE READ snapshot, and
+     * writers commit in version order, so no change below the highest version sent can show up later.
+     *
+     * @param since    The highest change version the client has applied, or null to start from a full snapshot.
+     * @param consumer Receives the changes, one at a time, while the rows are read.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void streamChanges(Long since, Consumer<StudentChange> consumer) {
+        try (PipelineMetrics.Job job = metrics.startJob("student.changes")) {
+            StudentChangeRepository.Clock clock = studentChangeRepository.readClock();
+            long[] rows = new long[1];
+            Consumer<StudentChange> counting = change -> {
+                rows[0]++;
+                consumer.accept(change);
+            };
+            if (since == null || since <= 0 || since < clock.resetVersion() || since > clock.version()) {
+                consumer.accept(new StudentChange(clock.version(), StudentChange.Operation.RESET, null, null, null));
+                job.stage("snapshot", () -> {
+                    studentChangeRepository.streamSnapshot(counting);
+                    return null;
+                });
+            } else {
+                job.stage("changes", () -> {
+                    studentChangeRepository.streamChanges(since, clock.version(), counting);
+                    return null;
+                });
+            }
+            job.rows(rows[0]);
+        }
+    }
+
+    /** This method drops the tombstones of deletes older than students.changes.tombstone-retention, so the
+     * tombstones table does not grow with every delete ever made. A change feed client whose version predates a
+     * dropped tombstone gets a RESET and a full snapshot, as after a delete of every student.
+     */
+    @Scheduled(fixedDelayString = "${students.changes.compaction-interval:PT6H}",
+            initialDelayString = "${students.changes.compaction-interval:PT6H}")
+    @Transactional
+    public void compactTombstones() {
+        int compacted = studentChangeRepository.compactTombstones(LocalDateTime.now().minus(tombstoneRetention));
+        if (compacted > 0) {
+            log.info("Compacted {} student tombstones older than {}", compacted, tombstoneRetention);
+        }
+    }
+
+    /** This method retrieves the students whose score lies within the given inclusive range, ordered by score.
+     * It is served from the score-sorted column of the in-memory index when available, and from the database otherwise.
+     *
+     * @param minScore The lowest score to include.
+     * @param maxScore The highest score to include.
+     * @return A list of Student entities ordered by score and then by ID.
+     */
+    public List<Student> getStudentsByScoreRange(int minScore, int maxScore) {
+        return studentIndex.findByScoreBetween(minScore, maxScore)
+                .orElseGet(() -> studentRepository.findByScoreBetweenOrderByScoreAscStudentIdAsc(minScore, maxScore));
+    }
+
     /** This method retrieves a paginated list of students from the database based on the provided class name.
      *
      * @param className The class name to filter students by.
@@ -132,4 +381,112 @@ public class StudentServiceImpl implements StudentService {
     public Page<Student> getStudentsByClassName(String className, Pageable pageable) {
         return studentRepository.findByClassName(className, pageable);
     }
+
+    /** This method searches students by first and last name. Every word of the query has to match the first or
+     * last name of a student exactly, as a prefix or within a small edit distance; students matching the first
+     * word exactly come first, then prefix matches, then fuzzy matches, each ordered by ID.
+     * The ranking is served from the in-memory name index; while that is being built, only students whose first
+     * or last name starts with the first word are returned, read from the database.
+     *
+     * @param query The words to search for, in any case.
+     * @param limit The maximum number of students to return, capped at 1,000.
+     * @return The matching Student entities, best matches first.
+     */
+    public List<Student> searchStudents(String query, int limit) {
+        String[] words = StudentNameIndex.tokenize(query);
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        int cappedLimit = Math.min(limit, MAX_SEARCH_RESULTS);
+        return metrics.time("student", "search", () -> studentNameIndex.search(query, cappedLimit)
+                .map(this::findAllInOrder)
+                .orElseGet(() -> studentRepository.findByNameLike(escapeLike(words[0]) + "%",
+                        PageRequest.of(0, cappedLimit))));
+    }
+
+    /** Stamps the students with the change version of the current transaction before they are saved. */
+    private void stampChange(List<Student> students) {
+        long version = studentChangeRepository.nextVersion();
+        LocalDateTime modifiedAt = LocalDateTime.now();
+        for (Student student : students) {
+            student.setChangeVersion(version);
+            student.setLastModified(modifiedAt);
+        }
+    }
+
+    /** This method ranks the students of every class, and of all classes together, by score in one call.
+     * Each class is read from the end of the (class_name, score) index and stops after its own limit, so only
+     * the returned students are read and held, never a full class or table. The classes are listed with a skip
+     * scan over that index; the students of each class are only counted when a percent is given. Students
+     * without a score are not ranked; ties are broken by ID.
+     *
+     * @param sortDirection DESC for the highest scores first, ASC for the lowest.
+     * @param limit         The number of students per leaderboard, capped at 1,000; ignored when percent is given.
+     * @param percent       An optional share of each class, e.g. 10 for the top or bottom decile of every class
+     *                      and of all classes together; each leaderboard is still capped at 1,000 students.
+     * @return The leaderboard of all classes and one leaderboard per class, in class name order.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public LeaderboardResponse getLeaderboard(String sortDirection, int limit, Double percent) {
+        Sort.Direction direction = Sort.Direction.fromString(sortDirection);
+        return metrics.time("student", "leaderboard", () -> {
+            Map<String, Integer> limits = new LinkedHashMap<>();
+            Map<String, Long> sizes = null;
+            long scoredStudents = 0;
+            if (percent != null) {
+                sizes = studentLeaderboardRepository.countScoredByClassName();
+                for (Map.Entry<String, Long> size : sizes.entrySet()) {
+                    scoredStudents += size.getValue();
+                    int rowLimit = shareSize(size.getValue(), percent);
+                    if (size.getKey() != null && rowLimit > 0) {
+                        limits.put(size.getKey(), rowLimit);
+                    }
+                }
+            } else if (cappedSize(limit) > 0) {
+                studentLeaderboardRepository.findClassNames().forEach(className -> limits.put(className,
+                        cappedSize(limit)));
+            }
+
+            Map<String, List<Student>> byClassName = limits.isEmpty()
+                    ? Map.of()
+                    : studentLeaderboardRepository.findTopByClassName(direction, limits);
+            Map<String, Long> classSizes = sizes;
+            List<Leaderboard> classes = limits.keySet().stream()
+                    .filter(byClassName::containsKey)
+                    .map(className -> new Leaderboard(className,
+                            classSizes == null ? null : classSizes.get(className), byClassName.get(className)))
+                    .toList();
+
+            int overallLimit = percent != null ? shareSize(scoredStudents, percent) : cappedSize(limit);
+            List<Student> overall = overallLimit == 0
+                    ? List.of()
+                    : studentLeaderboardRepository.findTop(direction, overallLimit);
+            return new LeaderboardResponse(direction,
+                    new Leaderboard(null, sizes == null ? null : scoredStudents, overall), classes);
+        });
+    }
+
+    /** The number of students to rank out of a class of the given size for a share of it, at most 1,000. */
+    private static int shareSize(long scoredStudents, double percent) {
+        double share = Math.min(Math.max(percent, 0), 100) / 100;
+        return (int) Math.min(Math.ceil(scoredStudents * share), MAX_LEADERBOARD_SIZE);
+    }
+
+    private static int cappedSize(int limit) {
+        return Math.min(Math.max(limit, 0), MAX_LEADERBOARD_SIZE);
+    }
+
+    /** Loads the students with the given IDs, keeping the order of the IDs and skipping the ones deleted since. */
+    private List<Student> findAllInOrder(List<Long> ids) {
+        Map<Long, Student> byId = studentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Student::getStudentId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
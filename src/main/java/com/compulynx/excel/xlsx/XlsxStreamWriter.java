@@ -0,0 +1,403 @@
+package com.compulynx.excel.xlsx;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a single-sheet xlsx workbook straight to a stream in one pass, without POI, cell objects or temporary
+ * files. The package parts are written first, then the sheet XML is encoded row by row into a reusable byte
+ * buffer that is deflated into the last zip entry; strings are written inline, so there is no shared string
+ * table to build or hold, and numbers are encoded digit by digit without going through a String.
+ * <pre>
+ * try (XlsxStreamWriter writer = new XlsxStreamWriter(outputStream, "Students")) {
+ *     writer.row().cell("Student ID").cell("Score");
+ *     writer.row().cell(1).cell(72);
+ * }
+ * </pre>
+ * A sheet holds at most {@value #MAX_ROWS} rows of {@value #MAX_COLUMNS} columns (A to XFD); writing past
+ * either limit throws, since Excel refuses to open a workbook that holds such cells.
+ * Not thread safe.
+ */
+public final class XlsxStreamWriter implements Closeable {
+
+    /** The most rows a sheet can hold. */
+    public static final int MAX_ROWS = 1_048_576;
+    /** The most columns a row can hold, up to column XFD. */
+    public static final int MAX_COLUMNS = 16_384;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Room kept free in the buffer for the markup around a value, so only strings need a bounds check per char. */
+    private static final int MARKUP_RESERVE = 128;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String PACKAGE_RELS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String RELS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String CONTENT_TYPES = XML_DECLARATION
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/worksheets/sheet1.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+            + "<Override PartName=\"/xl/sharedStrings.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>"
+            + "</Types>";
+
+    private static final String PACKAGE_RELS = XML_DECLARATION
+            + "<Relationships xmlns=\"" + PACKAGE_RELS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + RELS_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+
+    private static final String WORKBOOK_RELS = XML_DECLARATION
+            + "<Relationships xmlns=\"" + PACKAGE_RELS_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + RELS_NS + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+            + "<Relationship Id=\"rId2\" Type=\"" + RELS_NS + "/styles\" Target=\"styles.xml\"/>"
+            + "<Relationship Id=\"rId3\" Type=\"" + RELS_NS + "/sharedStrings\" Target=\"sharedStrings.xml\"/>"
+            + "</Relationships>";
+
+    /** The smallest style sheet Excel accepts: one font, the two reserved fills, one border and one cell format. */
+    private static final String STYLES = XML_DECLARATION
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+            + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/></cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    /** Empty, since every string is inline; some readers expect the part to exist. */
+    private static final String SHARED_STRINGS = XML_DECLARATION
+            + "<sst xmlns=\"" + MAIN_NS + "\" count=\"0\" uniqueCount=\"0\"/>";
+
+    private static final byte[] SHEET_START = ascii(XML_DECLARATION
+            + "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>");
+    private static final byte[] SHEET_END = ascii("</sheetData></worksheet>");
+    private static final byte[] ROW_START = ascii("<row r=\"");
+    private static final byte[] ROW_END = ascii("</row>");
+    private static final byte[] CELL_START = ascii("<c r=\"");
+    private static final byte[] NUMBER_START = ascii("\"><v>");
+    private static final byte[] NUMBER_END = ascii("</v></c>");
+    private static final byte[] STRING_START = ascii("\" t=\"inlineStr\"><is><t>");
+    private static final byte[] PRESERVED_STRING_START = ascii("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+    private static final byte[] STRING_END = ascii("</t></is></c>");
+    private static final byte[] LT = ascii("&lt;");
+    private static final byte[] GT = ascii("&gt;");
+    private static final byte[] AMP = ascii("&amp;");
+
+    private final ZipOutputStream zip;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private int position;
+    private int rowCount;
+    private int columnIndex;
+    private boolean rowOpen;
+    private boolean closed;
+
+    /**
+     * Writes the package parts and opens the sheet.
+     *
+     * @param outputStream The stream the workbook is written to; it is flushed but left open by {@link #close()}.
+     * @param sheetName    The name of the only sheet, at most 31 characters and none of {@code []:*?/\}.
+     */
+    public XlsxStreamWriter(OutputStream outputStream, String sheetName) throws IOException {
+        validateSheetName(sheetName);
+        zip = new ZipOutputStream(new BufferedOutputStream(new KeepOpenOutputStream(outputStream), BUFFER_SIZE));
+        zip.setLevel(Deflater.BEST_SPEED);
+        writePart("[Content_Types].xml", CONTENT_TYPES);
+        writePart("_rels/.rels", PACKAGE_RELS);
+        writePart("xl/workbook.xml", XML_DECLARATION
+                + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + RELS_NS + "\">"
+                + "<sheets><sheet name=\"" + escapeAttribute(sheetName) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+                + "</workbook>");
+        writePart("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        writePart("xl/styles.xml", STYLES);
+        writePart("xl/sharedStrings.xml", SHARED_STRINGS);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        put(SHEET_START);
+    }
+
+    /**
+     * Ends the current row, if any, and starts the next one.
+     *
+     * @throws IllegalStateException if the sheet already holds {@value #MAX_ROWS} rows.
+     */
+    public XlsxStreamWriter row() throws IOException {
+        ensureOpen();
+        if (rowCount == MAX_ROWS) {
+            throw new IllegalStateException("A sheet holds at most " + MAX_ROWS + " rows");
+        }
+        reserve(MARKUP_RESERVE);
+        if (rowOpen) {
+            put(ROW_END);
+        }
+        rowCount++;
+        columnIndex = 0;
+        rowOpen = true;
+        put(ROW_START);
+        putNumber(rowCount);
+        buffer[position++] = '"';
+        buffer[position++] = '>';
+        return this;
+    }
+
+    /** Writes a numeric cell. */
+    public XlsxStreamWriter cell(long value) throws IOException {
+        startCell();
+        put(NUMBER_START);
+        putNumber(value);
+        put(NUMBER_END);
+        return this;
+    }
+
+    /** Writes a numeric cell, or leaves the cell empty if the value is null. */
+    public XlsxStreamWriter cell(Integer value) throws IOException {
+        return value == null ? blank() : cell(value.longValue());
+    }
+
+    /** Writes an inline string cell, or leaves the cell empty if the value is null. */
+    public XlsxStreamWriter cell(String value) throws IOException {
+        if (value == null) {
+            return blank();
+        }
+        startCell();
+        boolean preserve = !value.isEmpty()
+                && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+        put(preserve ? PRESERVED_STRING_START : STRING_START);
+        putText(value);
+        reserve(MARKUP_RESERVE);
+        put(STRING_END);
+        return this;
+    }
+
+    /** Skips a cell, leaving it empty. */
+    public XlsxStreamWriter blank() throws IOException {
+        checkCell();
+        columnIndex++;
+        return this;
+    }
+
+    /** The number of rows started so far. */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /** Ends the sheet, finishes the zip and flushes it to the stream, which stays open. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            reserve(MARKUP_RESERVE);
+            if (rowOpen) {
+                put(ROW_END);
+            }
+            put(SHEET_END);
+            flushBuffer();
+            zip.closeEntry();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void startCell() throws IOException {
+        checkCell();
+        ensureOpen();
+        reserve(MARKUP_RESERVE);
+        put(CELL_START);
+        putColumn(columnIndex++);
+        putNumber(rowCount);
+    }
+
+    private void checkCell() {
+        if (!rowOpen) {
+            throw new IllegalStateException("Call row() before writing cells");
+        }
+        if (columnIndex == MAX_COLUMNS) {
+            throw new IllegalStateException("A row holds at most " + MAX_COLUMNS + " cells, up to column XFD");
+        }
+    }
+
+    /** Writes the column letters of a zero-based index: A..Z, AA..ZZ, AAA... */
+    private void putColumn(int index) {
+        if (index < 26) {
+            buffer[position++] = (byte) ('A' + index);
+            return;
+        }
+        putColumn(index / 26 - 1);
+        buffer[position++] = (byte) ('A' + index % 26);
+    }
+
+    private void putNumber(long value) {
+        if (value == Long.MIN_VALUE) {
+            put(ascii(Long.toString(value)));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            buffer[position++] = digits[--length];
+        }
+    }
+
+    /**
+     * Encodes text as escaped UTF-8. Control characters that XML 1.0 cannot hold are written as the
+     * {@code _xHHHH_} escapes of the spreadsheet format, so text that already looks like one gets its underscore
+     * escaped as {@code _x005F_} to be read back literally.
+     */
+    private void putText(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (position > BUFFER_SIZE - 16) {
+                flushBuffer();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '<' -> put(LT);
+                    case '>' -> put(GT);
+                    case '&' -> put(AMP);
+                    case '\t', '\n', '\r' -> buffer[position++] = (byte) c;
+                    case '_' -> {
+                        if (isEscapeAt(text, i)) {
+                            putEscape(c);
+                        } else {
+                            buffer[position++] = (byte) c;
+                        }
+                    }
+                    default -> {
+                        if (c < 0x20) {
+                            putEscape(c);
+                        } else {
+                            buffer[position++] = (byte) c;
+                        }
+                    }
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c) || c >= 0xFFFE) {
+                // Unpaired surrogates and U+FFFE/U+FFFF are not allowed in XML
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    /** Whether the text holds an {@code _xHHHH_} escape at the index, which Excel would decode on reading. */
+    private static boolean isEscapeAt(String text, int index) {
+        if (index + 7 > text.length() || text.charAt(index + 1) != 'x' || text.charAt(index + 6) != '_') {
+            return false;
+        }
+        for (int i = index + 2; i < index + 6; i++) {
+            char c = text.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putEscape(char c) {
+        buffer[position++] = '_';
+        buffer[position++] = 'x';
+        buffer[position++] = '0';
+        buffer[position++] = '0';
+        buffer[position++] = HEX[c >> 4];
+        buffer[position++] = HEX[c & 0xF];
+        buffer[position++] = '_';
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (position > BUFFER_SIZE - bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        zip.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void writePart(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The workbook is already closed");
+        }
+    }
+
+    private static void validateSheetName(String sheetName) {
+        if (sheetName == null || sheetName.isEmpty() || sheetName.length() > 31
+                || sheetName.chars().anyMatch(c -> "[]:*?/\\".indexOf(c) >= 0)) {
+            throw new IllegalArgumentException("Invalid sheet name: " + sheetName);
+        }
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** Lets the zip stream release its deflater on close without closing the caller's stream. */
+    private static final class KeepOpenOutputStream extends FilterOutputStream {
+
+        KeepOpenOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+-- Schema of the entities as Hibernate's ddl-auto=update created it. Every statement is idempotent, so the
+-- migration also brings a database created by ddl-auto up to date (spring.flyway.baseline-version=0).
+
+CREATE TABLE IF NOT EXISTS students (
+    student_id BIGINT NOT NULL PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    dob        DATE,
+    class_name VARCHAR(255),
+    score      INTEGER
+);
+
+ALTER TABLE students ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE students ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS idx_students_change_version ON students (change_version);
+
+CREATE TABLE IF NOT EXISTS student_import_batches (
+    batch_hash  VARCHAR(255) NOT NULL PRIMARY KEY,
+    row_count   INTEGER,
+    imported_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS student_import_checkpoints (
+    file_hash          VARCHAR(255) NOT NULL PRIMARY KEY,
+    file_name          VARCHAR(255),
+    last_committed_row BIGINT,
+    byte_offset        BIGINT,
+    batches            BIGINT,
+    skipped_batches    BIGINT,
+    affected_rows      BIGINT,
+    rejected_rows      BIGINT,
+    reject_file_id     VARCHAR(255),
+    reject_file_bytes  BIGINT,
+    started_at         TIMESTAMP(6),
+    updated_at         TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS student_tombstones (
+    student_id     BIGINT NOT NULL PRIMARY KEY,
+    change_version BIGINT,
+    deleted_at     TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_student_tombstones_change_version ON student_tombstones (change_version);
+
+CREATE TABLE IF NOT EXISTS student_change_clock (
+    id            INTEGER NOT NULL PRIMARY KEY,
+    version       BIGINT,
+    reset_version BIGINT
+);
@@ -0,0 +1,4 @@
+-- Lets the leaderboard read the best or worst students of a class, or of the whole table, from the end of an index
+-- instead of sorting the rows.
+CREATE INDEX IF NOT EXISTS idx_students_class_name_score ON students (class_name, score);
+CREATE INDEX IF NOT EXISTS idx_students_score ON students (score);
@@ -0,0 +1,132 @@
+package com.compulynx.excel.controller;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.event.StudentDatasetVersion;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.export.ExportArtifactCache;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.ImportBatchRepository;
+import com.compulynx.excel.repository.ImportCheckpointRepository;
+import com.compulynx.excel.repository.StudentBatchRepository;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.service.CSVService;
+import com.compulynx.excel.service.PdfConverterService;
+import com.compulynx.excel.service.StudentImportService;
+import com.compulynx.excel.service.StudentService;
+import com.compulynx.excel.service.impl.StudentImportServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CSVControllerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sendsANewExportOnceAFailedImportHasChangedRows() throws IOException {
+        DataProcessingDirectory dataProcessingDirectory = new DataProcessingDirectory(dir.toString());
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        StudentDatasetVersion datasetVersion = new StudentDatasetVersion();
+        ExportArtifactCache exportArtifactCache = new ExportArtifactCache(dataProcessingDirectory, datasetVersion,
+                metrics);
+        ReflectionTestUtils.setField(exportArtifactCache, "maxBytes", 1L << 20);
+
+        // The first batch of 5,000 rows commits, the second one fails
+        StudentBatchRepository studentBatchRepository = mock(StudentBatchRepository.class);
+        when(studentBatchRepository.upsert(anyList(), anyLong()))
+                .thenReturn(5_000L)
+                .thenThrow(new RuntimeException("connection reset"));
+        StudentImportService studentImportService = new StudentImportServiceImpl(studentBatchRepository,
+                mock(StudentChangeRepository.class), mock(ImportBatchRepository.class),
+                mock(ImportCheckpointRepository.class), mock(PlatformTransactionManager.class),
+                event -> datasetVersion.bumpAfterCommit((StudentsChangedEvent) event), metrics,
+                dataProcessingDirectory);
+
+        CSVService csvService = mock(CSVService.class);
+        when(csvService.exportCSVFile(null)).thenReturn(bytes("before"), bytes("after"));
+        when(csvService.upsertCsvFile(any())).thenAnswer(call ->
+                studentImportService.upsertFile(call.getArgument(0), CSVControllerTest::rows));
+        CSVController controller = new CSVController(csvService, mock(PdfConverterService.class),
+                mock(StudentService.class), studentImportService, exportArtifactCache);
+
+        MockHttpServletResponse exported = export(controller, null);
+        String etag = exported.getHeader(HttpHeaders.ETAG);
+        assertEquals("before", exported.getContentAsString());
+        assertEquals(304, export(controller, etag).getStatus());
+
+        assertThrows(RuntimeException.class, () -> controller.upsertStudentsData(students(6_000)));
+
+        MockHttpServletResponse afterImport = export(controller, etag);
+        assertEquals(200, afterImport.getStatus());
+        assertNotEquals(etag, afterImport.getHeader(HttpHeaders.ETAG));
+        assertEquals("after", afterImport.getContentAsString());
+    }
+
+    private static MockHttpServletResponse export(CSVController controller, String ifNoneMatch) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/csv/exportToCsvFile");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.exportToCsvFile(null, null, request, response);
+        return response;
+    }
+
+    private static MockMultipartFile students(int rows) {
+        StringBuilder csv = new StringBuilder("studentId,firstName,lastName,DOB,class,score\n");
+        for (int id = 1; id <= rows; id++) {
+            csv.append(id).append(",First,Last,2005-03-15,Class1,65\n");
+        }
+        return new MockMultipartFile("file", "students.csv", "text/csv", bytes(csv.toString()));
+    }
+
+    /** Reads the spooled upload line by line; the rows hold no quoted commas. */
+    private static StudentImportService.Rows rows(Path file, long byteOffset) throws IOException {
+        Iterator<String> lines = Files.readAllLines(file).iterator();
+        return new StudentImportService.Rows() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return List.of(lines.next().split(","));
+            }
+
+            @Override
+            public long position() {
+                return -1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
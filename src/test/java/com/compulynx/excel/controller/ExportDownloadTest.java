@@ -0,0 +1,67 @@
+package com.compulynx.excel.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportDownloadTest {
+
+    private static final String ETAG = "\"csv-all-lx3k9c2a-17\"";
+
+    @Test
+    void sendsTheExportWithoutIfNoneMatch() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(ExportDownload.notModified(new MockHttpServletRequest(), response, ETAG));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void answersNotModifiedToTheCurrentTag() {
+        MockHttpServletResponse response = notModified(ETAG);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void comparesWeakTagsByTheirValue() {
+        assertEquals(304, notModified("W/" + ETAG).getStatus());
+    }
+
+    @Test
+    void findsTheTagInAList() {
+        assertEquals(304, notModified("\"csv-all-lx3k9c2a-16\", W/\"other\" ," + ETAG).getStatus());
+        assertEquals(304, notModified("\"csv-all-lx3k9c2a-16\",W/" + ETAG).getStatus());
+        assertEquals(200, notModified("\"csv-all-lx3k9c2a-16\", W/\"other\"").getStatus());
+    }
+
+    @Test
+    void matchesAnyTagWithAStar() {
+        assertEquals(304, notModified("*").getStatus());
+        assertEquals(304, notModified(" * ").getStatus());
+    }
+
+    @Test
+    void sendsTheExportForAnotherVersionFormatOrFilter() {
+        assertEquals(200, notModified("\"csv-all-lx3k9c2a-18\"").getStatus());
+        assertEquals(200, notModified("\"pdf-all-lx3k9c2a-17\"").getStatus());
+        // Tags are compared whole and unquoted values never match
+        assertEquals(200, notModified("csv-all-lx3k9c2a-17").getStatus());
+        assertEquals(200, notModified("\"csv-all-lx3k9c2a-1\"").getStatus());
+        assertEquals(200, notModified("").getStatus());
+    }
+
+    private static MockHttpServletResponse notModified(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean notModified = ExportDownload.notModified(request, response, ETAG);
+        assertEquals(notModified, response.getStatus() == 304);
+        return response;
+    }
+}
@@ -0,0 +1,120 @@
+package com.compulynx.excel.controller;
+
+import com.compulynx.excel.dto.StudentField;
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.service.StudentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class StudentControllerTest {
+
+    private final StudentService studentService = mock(StudentService.class);
+    private final StudentController controller = new StudentController(studentService, new ObjectMapper());
+
+    @Test
+    void streamsOneStudentPerLineAsNdjson() throws IOException {
+        stream(student(1L, 72), student(2L, null));
+
+        MockHttpServletResponse response = get("ndjson", null, null);
+
+        assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+        assertEquals("{\"studentId\":1,\"firstName\":\"First1\",\"lastName\":\"Last1\",\"dob\":\"2005-03-15\","
+                + "\"className\":\"Class1\",\"score\":72}\n"
+                + "{\"studentId\":2,\"firstName\":\"First2\",\"lastName\":\"Last2\",\"dob\":\"2005-03-15\","
+                + "\"className\":\"Class1\",\"score\":null}", response.getContentAsString());
+        verify(studentService).streamStudents(eq(null), eq(EnumSet.allOf(StudentField.class)), any());
+    }
+
+    @Test
+    void streamsOneJsonArray() throws IOException {
+        stream(student(1L, 72), student(2L, 65));
+
+        MockHttpServletResponse response = get("JSON", "Class1", "studentId");
+
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getContentType());
+        assertEquals("[{\"studentId\":1},{\"studentId\":2}]", response.getContentAsString());
+        verify(studentService).streamStudents(eq("Class1"), eq(EnumSet.of(StudentField.STUDENT_ID)), any());
+    }
+
+    @Test
+    void streamsAnEmptyArrayWhenThereAreNoStudents() throws IOException {
+        stream();
+
+        assertEquals("[]", get("json", null, null).getContentAsString());
+        assertEquals("", get("ndjson", null, null).getContentAsString());
+    }
+
+    @Test
+    void writesTheProjectedFieldsInDeclarationOrder() throws IOException {
+        Student student = student(7L, 90);
+        student.setDob(null);
+        stream(student);
+
+        MockHttpServletResponse response = get("ndjson", null, " score, DOB ,studentId");
+
+        assertEquals("{\"studentId\":7,\"dob\":null,\"score\":90}", response.getContentAsString());
+        verify(studentService).streamStudents(eq(null),
+                eq(EnumSet.of(StudentField.STUDENT_ID, StudentField.DOB, StudentField.SCORE)), any());
+    }
+
+    @Test
+    void rejectsAnUnknownFormatOrFieldBeforeSendingAnything() {
+        for (String[] request : List.of(new String[]{"xml", null}, new String[]{"ndjson", "studentId,grade"},
+                new String[]{"json", ","}, new String[]{"json", "score,,studentId"})) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> controller.streamStudents(request[0], null, request[1], response));
+
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+            assertFalse(response.isCommitted());
+            assertEquals(0, response.getContentAsByteArray().length);
+        }
+        verifyNoInteractions(studentService);
+    }
+
+    private void stream(Student... students) {
+        doAnswer(call -> {
+            Consumer<Student> consumer = call.getArgument(2);
+            for (Student student : students) {
+                consumer.accept(student);
+            }
+            return null;
+        }).when(studentService).streamStudents(any(), any(), any());
+    }
+
+    private MockHttpServletResponse get(String stream, String className, String fields) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.streamStudents(stream, className, fields, response);
+        return response;
+    }
+
+    private static Student student(Long id, Integer score) {
+        Student student = new Student();
+        student.setStudentId(id);
+        student.setFirstName("First" + id);
+        student.setLastName("Last" + id);
+        student.setDob(LocalDate.of(2005, 3, 15));
+        student.setClassName("Class1");
+        student.setScore(score);
+        return student;
+    }
+}
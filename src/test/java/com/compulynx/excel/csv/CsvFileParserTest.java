@@ -0,0 +1,159 @@
+package com.compulynx.excel.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvFileParserTest {
+
+    @Test
+    void chunksEndOnRecordBoundariesEvenInsideQuotedLineBreaks() throws IOException {
+        // Each record is 40 bytes and its quoted field holds line breaks around every possible chunk target
+        String record = "1,\"line one\nline two\r\nline \"\"three\"\"\",x\n";
+        Path file = write(record.repeat(20));
+        try (FileChannel channel = FileChannel.open(file)) {
+            for (int chunkBytes = 1; chunkBytes <= 2 * record.length(); chunkBytes++) {
+                List<CsvFileParser.Chunk> chunks = CsvFileParser.split(channel, 0, chunkBytes);
+
+                long expectedStart = 0;
+                for (CsvFileParser.Chunk chunk : chunks) {
+                    assertEquals(expectedStart, chunk.start());
+                    assertEquals(0L, chunk.end() % record.length(), "chunk ends inside a record: " + chunk);
+                    expectedStart = chunk.end();
+                }
+                assertEquals(Files.size(file), expectedStart);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void parsesInParallelLikeTheSequentialParser() throws IOException {
+        String csv = randomCsv(2_000);
+        Path file = write(csv);
+        try {
+            List<List<String>> expected = parseSequentially(csv);
+            for (int chunkBytes : new int[]{7, 64, 1000, CsvFileParser.DEFAULT_CHUNK_BYTES}) {
+                assertEquals(expected, CsvFileParser.parseAll(file, chunkBytes), "chunkBytes=" + chunkBytes);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void treatsABareQuoteAsLiteralWhenSplitting() throws IOException {
+        // The first record holds a bare quote, which the record parser keeps as a literal character
+        String first = "1,O\"Brien,Sean,2004-01-09,Class2,70\n";
+        String record = "2,Mary,Smith,2005-03-15,Class1,65\n";
+        String csv = first + record.repeat(200);
+        Path file = write(csv);
+        try (FileChannel channel = FileChannel.open(file)) {
+            for (int chunkBytes : new int[]{1, 16, 100, 1000}) {
+                List<CsvFileParser.Chunk> chunks = CsvFileParser.split(channel, 0, chunkBytes);
+
+                assertTrue(chunks.size() >= csv.length() / (chunkBytes + record.length()), "chunkBytes=" + chunkBytes);
+                for (CsvFileParser.Chunk chunk : chunks) {
+                    assertEquals(0L, (chunk.end() - first.length()) % record.length(),
+                            "chunk ends inside a record: " + chunk);
+                }
+                assertEquals(parseSequentially(csv), CsvFileParser.parseAll(file, chunkBytes),
+                        "chunkBytes=" + chunkBytes);
+            }
+            assertEquals(List.of("1", "O\"Brien", "Sean", "2004-01-09", "Class2", "70"),
+                    CsvFileParser.parseAll(file, 16).get(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void iteratorResumesFromTheReportedPosition() throws IOException {
+        String csv = randomCsv(500);
+        Path file = write(csv);
+        try {
+            List<List<String>> expected = parseSequentially(csv);
+            long resumeAt;
+            try (CsvFileParser.RecordIterator records = CsvFileParser.open(file, 0, 64)) {
+                for (int i = 0; i < 123; i++) {
+                    assertEquals(expected.get(i), records.next());
+                }
+                resumeAt = records.position();
+            }
+
+            List<List<String>> rest = new ArrayList<>();
+            try (CsvFileParser.RecordIterator records = CsvFileParser.open(file, resumeAt, 64)) {
+                records.forEachRemaining(rest::add);
+                assertEquals(Files.size(file), records.position());
+            }
+            assertEquals(expected.subList(123, expected.size()), rest);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void handlesEmptyFilesAndAMissingFinalLineBreak() throws IOException {
+        Path empty = write("");
+        Path unterminated = write("a,b\r\nc,\"d\"");
+        try {
+            assertEquals(List.of(), CsvFileParser.parseAll(empty, 4));
+            assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), CsvFileParser.parseAll(unterminated, 4));
+        } finally {
+            Files.delete(empty);
+            Files.delete(unterminated);
+        }
+    }
+
+    /**
+     * Records mixing plain, quoted, escaped-quote and multi-line fields, literal quotes outside quoted fields,
+     * CRLF and LF endings and blank lines.
+     */
+    private static String randomCsv(int records) {
+        Random random = new Random(42);
+        String[] fields = {"John", "\"Doe, Jane\"", "\"say \"\"hi\"\"\"", "\"two\nlines\"", "\"crlf\r\ninside\"",
+                "", "\"\"", "Zoë", "\"\"\"\"", "12345678901234567890", "O\"Brien", "\"closed\"then\"open", "5\""};
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            int columns = 1 + random.nextInt(6);
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) {
+                    csv.append(',');
+                }
+                csv.append(fields[random.nextInt(fields.length)]);
+            }
+            csv.append(random.nextBoolean() ? "\r\n" : "\n");
+            if (random.nextInt(20) == 0) {
+                csv.append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    private static List<List<String>> parseSequentially(String csv) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = parser.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static Path write(String csv) throws IOException {
+        Path file = Files.createTempFile("students-", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+package com.compulynx.excel.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordParserTest {
+
+    @Test
+    void keepsCommasAndDoubledQuotesInsideQuotedFields() {
+        assertEquals(List.of(List.of("1", "Doe, John", "He said \"hi\"", "")),
+                parse("1,\"Doe, John\",\"He said \"\"hi\"\"\",\"\"\n"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotedFields() {
+        assertEquals(List.of(List.of("a\r\nb", "c"), List.of("d\ne", "f")),
+                parse("\"a\r\nb\",c\r\n\"d\ne\",f\n"));
+    }
+
+    @Test
+    void splitsRecordsOnLfCrLfAndALoneCr() {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e"), List.of("f")),
+                parse("a,b\r\nc,d\ne\rf"));
+    }
+
+    @Test
+    void skipsBlankLinesAndKeepsTrailingEmptyFields() {
+        assertEquals(List.of(List.of("a", ""), List.of("", "", "c")),
+                parse("\n\r\na,\n\n\r\n,,c\r\n\r\n\n"));
+    }
+
+    @Test
+    void decodesUtf8AndLongQuotedFields() {
+        String longName = "é".repeat(500) + ",\"";
+        String csv = "\"Zoë\",\"" + longName.replace("\"", "\"\"") + "\"\n";
+
+        assertEquals(List.of(List.of("Zoë", longName)), parse(csv));
+    }
+
+    @Test
+    void isLenientWithStrayQuotes() {
+        assertEquals(List.of(List.of("ab\"c", "\"x\"y", "unterminated,\nrest")),
+                parse("ab\"c,\"\"\"x\"\"\"y,\"unterminated,\nrest"));
+    }
+
+    @Test
+    void reportsThePositionAfterEachRecord() {
+        byte[] bytes = "a,b\r\n\"c\nd\",e\n\nf\n".getBytes(StandardCharsets.UTF_8);
+        CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+
+        parser.next();
+        assertEquals(5, parser.position());
+        parser.next();
+        assertEquals(13, parser.position());
+        assertEquals(List.of("f"), parser.next());
+        assertEquals(bytes.length, parser.position());
+        assertNull(parser.next());
+
+        CsvRecordParser resumed = new CsvRecordParser(bytes, 5, bytes.length);
+        assertEquals(List.of("c\nd", "e"), resumed.next());
+    }
+
+    private static List<List<String>> parse(String csv) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        CsvRecordParser parser = new CsvRecordParser(bytes, 0, bytes.length);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = parser.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,155 @@
+package com.compulynx.excel.export;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.event.StudentDatasetVersion;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportArtifactCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final StudentDatasetVersion datasetVersion = new StudentDatasetVersion();
+    private final AtomicInteger generated = new AtomicInteger();
+    private ExportArtifactCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ExportArtifactCache(new DataProcessingDirectory(dir.toString()), datasetVersion,
+                new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 20);
+    }
+
+    @Test
+    void generatesAnExportOnceUntilTheDataChanges() throws IOException {
+        ExportArtifactCache.Key key = cache.key("csv", null);
+        assertEquals("csv-data-1", read(key, "csv-data-1"));
+        assertEquals("csv-data-1", read(cache.key("csv", " "), "csv-data-2"));
+        assertEquals(1, generated.get());
+
+        datasetVersion.bumpAfterCommit(StudentsChangedEvent.imported());
+        ExportArtifactCache.Key changed = cache.key("csv", null);
+
+        assertNotEquals(key.etag(), changed.etag());
+        assertEquals("csv-data-2", read(changed, "csv-data-2"));
+        assertEquals(2, generated.get());
+        // The export of the old version can never be served again
+        assertEquals(List.of(changed.fileName()), cachedFiles());
+    }
+
+    @Test
+    void keysExportsByFormatAndFilter() throws IOException {
+        read(cache.key("csv", null), "all");
+        read(cache.key("csv", "Class1"), "class 1");
+        read(cache.key("pdf", "Class1"), "pdf");
+
+        assertEquals("class 1", read(cache.key("csv", "Class1"), "again"));
+        assertEquals(3, generated.get());
+        assertNotEquals(cache.key("csv", "Class1").etag(), cache.key("csv", "Class2").etag());
+        assertTrue(cache.key("pdf", null).etag().matches("\"pdf-all-[0-9a-z]+-0\""));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedExportsOverTheSizeLimit() throws IOException {
+        ReflectionTestUtils.setField(cache, "maxBytes", 250L);
+        String hundredBytes = "x".repeat(100);
+        ExportArtifactCache.Key first = cache.key("csv", "Class1");
+        ExportArtifactCache.Key second = cache.key("csv", "Class2");
+        read(first, hundredBytes);
+        read(second, hundredBytes);
+        Path cacheDir = dir.resolve("export-cache");
+        Files.setLastModifiedTime(cacheDir.resolve(first.fileName()), minutesAgo(2));
+        Files.setLastModifiedTime(cacheDir.resolve(second.fileName()), minutesAgo(1));
+
+        // A hit makes the first export the most recently used one
+        read(first, hundredBytes);
+        ExportArtifactCache.Key third = cache.key("csv", "Class3");
+        read(third, hundredBytes);
+
+        assertEquals(List.of(first.fileName(), third.fileName()).stream().sorted().toList(), cachedFiles());
+        assertEquals(3, generated.get());
+    }
+
+    @Test
+    void generatesEveryExportWhenDisabled() throws IOException {
+        ReflectionTestUtils.setField(cache, "maxBytes", 0L);
+        ExportArtifactCache.Key key = cache.key("csv", null);
+
+        assertFalse(cache.isEnabled());
+        assertEquals("one", read(key, "one"));
+        assertEquals("two", read(key, "two"));
+        assertEquals(2, generated.get());
+    }
+
+    @Test
+    void leavesNothingBehindWhenTheExportFails() throws IOException {
+        ExportArtifactCache.Key key = cache.key("csv", null);
+
+        assertThrows(IOException.class, () -> cache.get(key, outputStream -> {
+            outputStream.write(new byte[10_000]);
+            throw new IOException("disk full");
+        }));
+
+        try (Stream<Path> files = Files.list(dir.resolve("export-cache"))) {
+            assertEquals(0, files.count());
+        }
+        assertEquals("retried", read(key, "retried"));
+    }
+
+    @Test
+    void deletesTheExportsOfAPreviousRunOnStartup() throws IOException {
+        read(cache.key("csv", null), "data");
+        Path unrelated = Files.writeString(dir.resolve("export-cache").resolve("notes.txt"), "keep");
+
+        cache.clearOnStartup();
+
+        assertTrue(cachedFiles().isEmpty());
+        assertTrue(Files.exists(unrelated));
+    }
+
+    private String read(ExportArtifactCache.Key key, String content) throws IOException {
+        try (ExportArtifactCache.Artifact artifact = cache.get(key, outputStream -> {
+            generated.incrementAndGet();
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        })) {
+            assertEquals(key.etag(), artifact.etag());
+            ByteBuffer buffer = ByteBuffer.allocate((int) artifact.size());
+            while (buffer.hasRemaining()) {
+                artifact.channel().read(buffer, buffer.position());
+            }
+            return new String(buffer.array(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("export-cache"))) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("export-"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static FileTime minutesAgo(long minutes) {
+        return FileTime.from(Instant.now().minusSeconds(minutes * 60));
+    }
+}
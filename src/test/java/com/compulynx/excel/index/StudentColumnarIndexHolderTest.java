@@ -0,0 +1,90 @@
+package com.compulynx.excel.index;
+
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StudentColumnarIndexHolderTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final AtomicInteger builds = new AtomicInteger();
+    private StudentColumnarIndexHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        when(studentRepository.streamAllOrderedById()).thenAnswer(call -> {
+            builds.incrementAndGet();
+            return List.of(student(1L, 60), student(2L, 70)).stream();
+        });
+        holder = new StudentColumnarIndexHolder(studentRepository, mock(EntityManager.class),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(holder, "enabled", true);
+        holder.loadOnStartup();
+        awaitSnapshot();
+    }
+
+    @AfterEach
+    void tearDown() {
+        holder.shutdown();
+    }
+
+    @Test
+    void rebuildsTheSnapshotAfterABulkWriteRollsBack() {
+        StudentsChangedEvent event = StudentsChangedEvent.bulk();
+        holder.beforeCommit(event);
+        assertTrue(holder.findById(1L).isEmpty());
+
+        holder.afterRollback(event);
+
+        awaitSnapshot();
+        assertEquals(2, builds.get());
+        assertEquals(List.of(1L, 2L), holder.findByScoreBetween(0, 100).orElseThrow().stream()
+                .map(Student::getStudentId)
+                .toList());
+    }
+
+    @Test
+    void readsListedStudentsFromTheSnapshotAgainAfterARollback() {
+        StudentsChangedEvent event = StudentsChangedEvent.saved(List.of(student(1L, 99)));
+        holder.beforeCommit(event);
+        assertTrue(holder.findById(1L).isEmpty());
+        assertTrue(holder.findById(2L).isPresent());
+
+        holder.afterRollback(event);
+
+        assertEquals(60, holder.findById(1L).orElseThrow().getScore());
+        assertEquals(1, builds.get());
+    }
+
+    private void awaitSnapshot() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (holder.findById(1L).isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "the index was not rebuilt");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Student student(Long id, Integer score) {
+        Student student = new Student();
+        student.setStudentId(id);
+        student.setFirstName("First" + id);
+        student.setLastName("Last" + id);
+        student.setClassName("Class1");
+        student.setScore(score);
+        return student;
+    }
+}
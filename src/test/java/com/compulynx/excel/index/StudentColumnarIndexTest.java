@@ -0,0 +1,124 @@
+package com.compulynx.excel.index;
+
+import com.compulynx.excel.entity.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentColumnarIndexTest {
+
+    /**
+     * Lower bound for one Student row held in a List with compressed oops: the entity (40), Long id (16),
+     * LocalDate (24), two Strings with their byte arrays (2 x 48) and the list slot (4). Integer scores come
+     * from the small-value cache and are not counted.
+     */
+    private static final long ENTITY_ROW_LOWER_BOUND_BYTES = 40 + 16 + 24 + 2 * 48 + 4;
+
+    @Test
+    void findsStudentsByIdAndScoreRange() {
+        StudentColumnarIndex index = StudentColumnarIndex.builder()
+                .add(student(30L, "Jane", "Doe", LocalDate.of(2004, 5, 1), "Class2", 70))
+                .add(student(10L, "John", "Doe", LocalDate.of(2003, 1, 9), "Class1", 60))
+                .add(student(20L, "Mary", "Smith", null, "Class1", 60))
+                .add(student(40L, "Paul", null, LocalDate.of(2001, 2, 3), null, null))
+                .build();
+
+        assertEquals(4, index.size());
+        assertEquals(student(10L, "John", "Doe", LocalDate.of(2003, 1, 9), "Class1", 60),
+                index.findById(10L).orElseThrow());
+        assertEquals(student(40L, "Paul", null, LocalDate.of(2001, 2, 3), null, null),
+                index.findById(40L).orElseThrow());
+        assertTrue(index.findById(15L).isEmpty());
+
+        List<Long> inRange = index.findByScoreBetween(55, 70).stream().map(Student::getStudentId).toList();
+        assertEquals(List.of(10L, 20L, 30L), inRange);
+        assertEquals(2, index.countByScoreBetween(60, 69));
+        assertEquals(3, index.countByScoreBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertTrue(index.findByScoreBetween(71, 100).isEmpty());
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        StudentColumnarIndex.Builder builder = StudentColumnarIndex.builder()
+                .add(student(2L, "A", "B", null, "Class1", 1))
+                .add(student(1L, "A", "B", null, "Class1", 1))
+                .add(student(2L, "A", "B", null, "Class1", 1));
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    @Test
+    void leavesOutExcludedStudentsFromScoreRanges() {
+        StudentColumnarIndex index = StudentColumnarIndex.builder()
+                .add(student(1L, "John", "Doe", null, "Class1", 60))
+                .add(student(2L, "Jane", "Doe", null, "Class1", 61))
+                .add(student(3L, "Mary", "Smith", null, "Class2", 62))
+                .build();
+
+        List<Long> inRange = index.findByScoreBetween(60, 62, id -> id == 2L).stream()
+                .map(Student::getStudentId)
+                .toList();
+        assertEquals(List.of(1L, 3L), inRange);
+    }
+
+    @Test
+    void buildsAnUnorderedRosterAcrossManyGrowths() {
+        int rows = 200_000;
+        String[] firstNames = {"John", "Jane", "Mary", "Paul", "Peter", "Grace", "Faith", "James"};
+        String[] lastNames = {"Otieno", "Wanjiru", "Kamau", "Achieng", "Mwangi", "Njeri", "Kiptoo"};
+        LocalDate from = LocalDate.of(2000, 1, 1);
+
+        StudentColumnarIndex.Builder builder = StudentColumnarIndex.builder();
+        for (int i = rows; i >= 1; i--) {
+            builder.add(i, firstNames[i % firstNames.length], lastNames[i % lastNames.length],
+                    from.plusDays(i % 4000), "Class" + (i % 5 + 1), 55 + i % 21);
+        }
+        StudentColumnarIndex index = builder.build();
+
+        assertEquals(rows, index.size());
+        assertEquals(student(12_345L, firstNames[12_345 % firstNames.length], lastNames[12_345 % lastNames.length],
+                from.plusDays(12_345 % 4000), "Class1", 55 + 12_345 % 21), index.findById(12_345L).orElseThrow());
+        assertEquals(rows / 21, index.countByScoreBetween(55, 55));
+        List<Student> lowest = index.findByScoreBetween(55, 55);
+        assertEquals(21L, lowest.get(0).getStudentId());
+        assertEquals(42L, lowest.get(1).getStudentId());
+    }
+
+    @Test
+    void holdsTheRosterInAQuarterOfTheEntityList() {
+        // 1M rows keep the build within the default test heap; the footprint grows linearly with the rows
+        int rows = 1_000_000;
+        String[] firstNames = {"John", "Jane", "Mary", "Paul", "Peter", "Grace", "Faith", "James"};
+        String[] lastNames = {"Otieno", "Wanjiru", "Kamau", "Achieng", "Mwangi", "Njeri", "Kiptoo"};
+        LocalDate from = LocalDate.of(2000, 1, 1);
+
+        StudentColumnarIndex.Builder builder = StudentColumnarIndex.builder();
+        for (int i = 1; i <= rows; i++) {
+            builder.add(i, firstNames[i % firstNames.length], lastNames[i % lastNames.length],
+                    from.plusDays(i % 4000), "Class" + (i % 5 + 1), 55 + i % 21);
+        }
+        StudentColumnarIndex index = builder.build();
+
+        long indexBytes = index.footprintBytes();
+        long entityListBytes = rows * ENTITY_ROW_LOWER_BOUND_BYTES;
+        assertEquals(rows, index.size());
+        assertTrue(indexBytes * 4 < entityListBytes,
+                "index uses " + indexBytes + " bytes, entity list needs at least " + entityListBytes);
+        assertEquals(rows / 21, index.countByScoreBetween(55, 55));
+    }
+
+    private static Student student(Long id, String firstName, String lastName, LocalDate dob, String className,
+                                   Integer score) {
+        Student student = new Student();
+        student.setStudentId(id);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setDob(dob);
+        student.setClassName(className);
+        student.setScore(score);
+        return student;
+    }
+}
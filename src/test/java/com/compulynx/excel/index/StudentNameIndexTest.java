@@ -0,0 +1,61 @@
+package com.compulynx.excel.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentNameIndexTest {
+
+    private final StudentNameIndex index = StudentNameIndex.builder()
+            .add(50L, "Jon", "Smith")
+            .add(10L, "John", "Doe")
+            .add(40L, "Johnny", "Johnson")
+            .add(20L, "Mary", "John")
+            .add(30L, "Jhon", "Smyth")
+            .add(60L, "Paul", null)
+            .build();
+
+    @Test
+    void ranksExactThenPrefixThenFuzzyMatchesByFirstWord() {
+        assertEquals(6, index.size());
+        assertEquals(List.of(
+                        new StudentNameIndex.Match(10L, StudentNameIndex.EXACT),
+                        new StudentNameIndex.Match(20L, StudentNameIndex.EXACT),
+                        new StudentNameIndex.Match(40L, StudentNameIndex.PREFIX),
+                        new StudentNameIndex.Match(50L, StudentNameIndex.PREFIX + 1)),
+                index.search("JOHN", 10, id -> false));
+
+        assertEquals(List.of(10L, 20L), ids(index.search("john", 2, id -> false)));
+        assertEquals(List.of(20L, 40L), ids(index.search("john", 2, id -> id == 10L)));
+        assertEquals(List.of(60L), ids(index.search("  pa ", 10, id -> false)));
+        assertTrue(index.search("zzzzzz", 10, id -> false).isEmpty());
+        assertTrue(index.search(" ", 10, id -> false).isEmpty());
+    }
+
+    @Test
+    void requiresEveryWordToMatchAFirstOrLastName() {
+        assertEquals(List.of(
+                        new StudentNameIndex.Match(50L, StudentNameIndex.EXACT),
+                        new StudentNameIndex.Match(30L, StudentNameIndex.PREFIX + 1)),
+                index.search("jon smith", 10, id -> false));
+        assertEquals(List.of(40L), ids(index.search("johnson jo", 10, id -> false)));
+        assertTrue(index.search("john paul", 10, id -> false).isEmpty());
+    }
+
+    @Test
+    void boundsTheEditDistance() {
+        assertEquals(2, StudentNameIndex.distance("jhon", "john", 2));
+        assertEquals(2, StudentNameIndex.distance("smith", "smiht", 2));
+        assertEquals(3, StudentNameIndex.distance("smith", "paul", 2));
+        assertEquals(StudentNameIndex.PREFIX + 1, StudentNameIndex.matchTier("jon", "john"));
+        assertEquals(StudentNameIndex.NO_MATCH, StudentNameIndex.matchTier("jhon", "john"));
+        assertEquals(StudentNameIndex.NO_MATCH, StudentNameIndex.matchTier("pa", "mary"));
+        assertEquals(StudentNameIndex.NO_MATCH, StudentNameIndex.matchTier("john", null));
+    }
+
+    private static List<Long> ids(List<StudentNameIndex.Match> matches) {
+        return matches.stream().map(StudentNameIndex.Match::studentId).toList();
+    }
+}
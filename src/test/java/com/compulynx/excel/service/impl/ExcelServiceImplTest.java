@@ -0,0 +1,69 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.service.StudentImportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExcelServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportsTheStudentIdsSoTheWorkbookCanBeUpsertedBack() throws IOException {
+        for (String writer : List.of("direct", "sxssf")) {
+            StudentServiceImpl studentService = mock(StudentServiceImpl.class);
+            when(studentService.getStudentsForExport("Class2")).thenReturn(List.of(
+                    student(42L, "Jane", 70), student(7L, "John", 61)));
+            ExcelServiceImpl excelService = new ExcelServiceImpl(studentService, mock(StudentImportService.class),
+                    new PipelineMetrics(new SimpleMeterRegistry()), new DataProcessingDirectory(dir.toString()));
+            excelService.writer = writer;
+
+            try (XSSFWorkbook workbook = new XSSFWorkbook(
+                    new ByteArrayInputStream(excelService.exportExcelFile("Class2")))) {
+                Sheet sheet = workbook.getSheetAt(0);
+
+                assertEquals("Student ID", sheet.getRow(0).getCell(0).getStringCellValue(), writer);
+                assertEquals(2, sheet.getLastRowNum(), writer);
+                assertRow(sheet.getRow(1), 42, "Jane", 70, writer);
+                assertRow(sheet.getRow(2), 7, "John", 61, writer);
+            }
+        }
+    }
+
+    private static void assertRow(Row row, long studentId, String firstName, int score, String writer) {
+        assertEquals(studentId, (long) row.getCell(0).getNumericCellValue(), writer);
+        assertEquals(firstName, row.getCell(1).getStringCellValue(), writer);
+        assertEquals("2005-03-15", row.getCell(3).getStringCellValue(), writer);
+        assertEquals("Class2", row.getCell(4).getStringCellValue(), writer);
+        assertEquals(score, (int) row.getCell(5).getNumericCellValue(), writer);
+    }
+
+    private static Student student(Long id, String firstName, Integer score) {
+        Student student = new Student();
+        student.setStudentId(id);
+        student.setFirstName(firstName);
+        student.setLastName("Doe");
+        student.setDob(LocalDate.of(2005, 3, 15));
+        student.setClassName("Class2");
+        student.setScore(score);
+        return student;
+    }
+}
@@ -0,0 +1,340 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.dto.ImportSummary;
+import com.compulynx.excel.entity.ImportBatch;
+import com.compulynx.excel.entity.ImportCheckpoint;
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.event.StudentsChangedEvent;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.ImportBatchRepository;
+import com.compulynx.excel.repository.ImportCheckpointRepository;
+import com.compulynx.excel.repository.StudentBatchRepository;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.service.StudentImportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs imports against in-memory repositories. Checkpoints are stored as copies, so the changes a failed batch
+ * made to the checkpoint in memory are lost like a rolled back row.
+ */
+class StudentImportServiceImplTest {
+
+    private static final int ROWS = 12_000;
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, ImportCheckpoint> checkpoints = new HashMap<>();
+    private final Set<String> ledger = new HashSet<>();
+    /** How often each student was written to the table. */
+    private final Map<Long, Integer> writes = new HashMap<>();
+    private final List<Object> events = new ArrayList<>();
+    private final List<Long> openedAt = new ArrayList<>();
+    private int upserts;
+    private int failingUpsert = -1;
+    private DataProcessingDirectory dataProcessingDirectory;
+    private StudentImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        ImportCheckpointRepository checkpointRepository = mock(ImportCheckpointRepository.class);
+        when(checkpointRepository.findById(anyString())).thenAnswer(call ->
+                Optional.ofNullable(checkpoints.get(call.<String>getArgument(0))).map(StudentImportServiceImplTest::copy));
+        when(checkpointRepository.existsById(anyString())).thenAnswer(call ->
+                checkpoints.containsKey(call.<String>getArgument(0)));
+        when(checkpointRepository.save(any())).thenAnswer(call -> {
+            ImportCheckpoint checkpoint = call.getArgument(0);
+            checkpoints.put(checkpoint.getFileHash(), copy(checkpoint));
+            return checkpoint;
+        });
+        doAnswer(call -> checkpoints.remove(call.<String>getArgument(0)))
+                .when(checkpointRepository).deleteById(anyString());
+        when(checkpointRepository.findByUpdatedAtBefore(any())).thenAnswer(call -> checkpoints.values().stream()
+                .filter(checkpoint -> checkpoint.getUpdatedAt().isBefore(call.getArgument(0)))
+                .map(StudentImportServiceImplTest::copy)
+                .toList());
+
+        ImportBatchRepository batchRepository = mock(ImportBatchRepository.class);
+        when(batchRepository.existsById(anyString())).thenAnswer(call -> ledger.contains(call.<String>getArgument(0)));
+        when(batchRepository.save(any())).thenAnswer(call -> {
+            ImportBatch batch = call.getArgument(0);
+            ledger.add(batch.getBatchHash());
+            return batch;
+        });
+
+        StudentBatchRepository studentBatchRepository = new StudentBatchRepository(null) {
+            @Override
+            public long upsert(List<Student> students, long version) {
+                if (upserts++ == failingUpsert) {
+                    throw new RuntimeException("connection reset");
+                }
+                students.forEach(student -> writes.merge(student.getStudentId(), 1, Integer::sum));
+                return students.size();
+            }
+        };
+        StudentChangeRepository studentChangeRepository = new StudentChangeRepository(null) {
+            @Override
+            public long nextVersion() {
+                return upserts;
+            }
+        };
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+
+        dataProcessingDirectory = new DataProcessingDirectory(dir.toString());
+        service = new StudentImportServiceImpl(studentBatchRepository, studentChangeRepository, batchRepository,
+                checkpointRepository, transactionManager, events::add,
+                new PipelineMetrics(new SimpleMeterRegistry()), dataProcessingDirectory);
+        service.checkpointTtl = Duration.ofDays(7);
+    }
+
+    @Test
+    void resumesFromTheByteOffsetOfTheLastCommittedBatch() throws IOException {
+        // Rows 8 and 11001 hold students 7 and 11000, which are rejected
+        MockMultipartFile file = csv(id -> id == 7 || id == 11_000 ? "x" : "65");
+        failingUpsert = 2;
+
+        assertThrows(RuntimeException.class, () -> service.upsertFile(file, this::csvRows));
+        // The two committed batches changed the table, so caches derived from it are dropped
+        assertEquals(List.of(StudentsChangedEvent.imported()), events);
+        ImportCheckpoint checkpoint = onlyCheckpoint();
+        assertEquals(10_002L, checkpoint.getLastCommittedRow());
+        assertTrue(checkpoint.getByteOffset() > 0);
+        assertEquals(1L, checkpoint.getRejectedRows());
+        // The reject of row 11001 was written after the checkpoint
+        Path rejectFile = service.getRejectFile(checkpoint.getRejectFileId()).orElseThrow();
+        assertEquals(3, Files.readAllLines(rejectFile).size());
+        assertTrue(Files.size(rejectFile) > checkpoint.getRejectFileBytes());
+
+        ImportSummary summary = service.upsertFile(file, this::csvRows);
+
+        assertEquals(List.of(0L, checkpoint.getByteOffset()), openedAt);
+        assertEquals(2, events.size());
+        assertEquals(10_002, summary.getResumedFromRow());
+        assertEquals(ROWS, summary.getTotalRows());
+        assertEquals(3, summary.getBatches());
+        assertEquals(ROWS - 2, summary.getAffectedRows());
+        assertEquals(2, summary.getRejectedRows());
+        assertEquals(checkpoint.getRejectFileId(), summary.getRejectFileId());
+        assertWrittenOnce(ROWS - 2);
+        assertFalse(writes.containsKey(7L));
+        assertFalse(writes.containsKey(11_000L));
+
+        // Cut back to the checkpoint before row 11001 was rejected again
+        List<String> rejects = Files.readAllLines(rejectFile);
+        assertEquals(3, rejects.size());
+        assertTrue(rejects.get(1).startsWith("8,"));
+        assertTrue(rejects.get(2).startsWith("11001,"));
+
+        assertTrue(checkpoints.isEmpty());
+        assertTrue(dataProcessingDirectory.list("upload-*").isEmpty());
+    }
+
+    @Test
+    void skipsTheCommittedRowsOfAFileThatCannotBeReadFromAnOffset() throws IOException {
+        MockMultipartFile file = csv(id -> "65");
+        failingUpsert = 1;
+
+        assertThrows(RuntimeException.class, () -> service.upsertFile(file, this::unseekableRows));
+        ImportCheckpoint checkpoint = onlyCheckpoint();
+        assertEquals(5_001L, checkpoint.getLastCommittedRow());
+        assertEquals(-1L, checkpoint.getByteOffset());
+
+        ImportSummary summary = service.upsertFile(file, this::unseekableRows);
+
+        assertEquals(List.of(0L, 0L), openedAt);
+        assertEquals(5_001, summary.getResumedFromRow());
+        assertEquals(ROWS, summary.getTotalRows());
+        assertEquals(3, summary.getBatches());
+        assertEquals(ROWS, summary.getAffectedRows());
+        assertWrittenOnce(ROWS);
+    }
+
+    @Test
+    void skipsBatchesAlreadyInTheLedgerAfterResuming() throws IOException {
+        service.upsertFile(csv(id -> "65"), this::csvRows);
+        assertEquals(3, ledger.size());
+
+        // The first two batches change, the last one was imported unchanged by the first file
+        MockMultipartFile changed = csv(id -> id <= 10_000 ? "70" : "65");
+        failingUpsert = upserts + 1;
+
+        assertThrows(RuntimeException.class, () -> service.upsertFile(changed, this::csvRows));
+        assertEquals(5_001L, onlyCheckpoint().getLastCommittedRow());
+
+        int upsertsBeforeResume = upserts;
+        ImportSummary summary = service.upsertFile(changed, this::csvRows);
+
+        assertEquals(5_001, summary.getResumedFromRow());
+        assertEquals(3, summary.getBatches());
+        assertEquals(1, summary.getSkippedBatches());
+        assertEquals(10_000, summary.getAffectedRows());
+        assertEquals(1, upserts - upsertsBeforeResume);
+        assertEquals(3, events.size());
+        assertEquals(2, writes.get(10_000L));
+        assertEquals(1, writes.get(10_001L));
+    }
+
+    @Test
+    void publishesNoChangeWhenNoBatchCommitted() {
+        failingUpsert = 0;
+
+        assertThrows(RuntimeException.class, () -> service.upsertFile(csv(id -> "65"), this::csvRows));
+
+        assertTrue(checkpoints.isEmpty());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void sweepsTheCheckpointsAndFilesOfAbandonedImports() throws IOException {
+        failingUpsert = 1;
+        assertThrows(RuntimeException.class,
+                () -> service.upsertFile(csv(id -> id == 7 ? "x" : "65"), this::csvRows));
+        ImportCheckpoint abandoned = onlyCheckpoint();
+        abandoned.setUpdatedAt(LocalDateTime.now().minusDays(8));
+        checkpoints.put(abandoned.getFileHash(), abandoned);
+        Path abandonedUpload = dataProcessingDirectory.resolve("upload-" + abandoned.getFileHash());
+        Path rejectFile = service.getRejectFile(abandoned.getRejectFileId()).orElseThrow();
+
+        failingUpsert = upserts + 1;
+        assertThrows(RuntimeException.class, () -> service.upsertFile(csv(id -> "70"), this::csvRows));
+        String recentHash = checkpoints.keySet().stream()
+                .filter(hash -> !hash.equals(abandoned.getFileHash()))
+                .findFirst().orElseThrow();
+        Path recentUpload = dataProcessingDirectory.resolve("upload-" + recentHash);
+
+        Path orphanedUpload = Files.writeString(dataProcessingDirectory.resolve("upload-0123abcd"), "studentId\n");
+        Path partialUpload = Files.writeString(dataProcessingDirectory.resolve("upload-1b2c.part"), "student");
+        Path newUpload = Files.writeString(dataProcessingDirectory.resolve("upload-4567ef"), "studentId\n");
+        FileTime eightDaysAgo = FileTime.from(Instant.now().minus(Duration.ofDays(8)));
+        for (Path file : List.of(abandonedUpload, recentUpload, orphanedUpload, partialUpload)) {
+            Files.setLastModifiedTime(file, eightDaysAgo);
+        }
+
+        service.sweepAbandonedImports();
+
+        assertEquals(Set.of(recentHash), checkpoints.keySet());
+        assertFalse(Files.exists(abandonedUpload));
+        assertFalse(Files.exists(rejectFile));
+        assertFalse(Files.exists(orphanedUpload));
+        assertFalse(Files.exists(partialUpload));
+        // Still resumable: its checkpoint is recent even though the upload was spooled long ago
+        assertTrue(Files.exists(recentUpload));
+        assertTrue(Files.exists(newUpload));
+    }
+
+    private StudentImportService.Rows csvRows(Path file, long byteOffset) throws IOException {
+        openedAt.add(byteOffset);
+        return CSVServiceImpl.openRows(file, byteOffset);
+    }
+
+    /** Reads a CSV file like the Excel reader reads a workbook, without byte offsets. */
+    private StudentImportService.Rows unseekableRows(Path file, long byteOffset) throws IOException {
+        assertEquals(0, byteOffset);
+        StudentImportService.Rows rows = csvRows(file, byteOffset);
+        return new StudentImportService.Rows() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return rows.next();
+            }
+
+            @Override
+            public long position() {
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    private ImportCheckpoint onlyCheckpoint() {
+        assertEquals(1, checkpoints.size());
+        return copy(checkpoints.values().iterator().next());
+    }
+
+    private void assertWrittenOnce(int students) {
+        assertEquals(students, writes.size());
+        assertTrue(writes.values().stream().allMatch(count -> count == 1));
+    }
+
+    /** A header and {@value #ROWS} students with ids 1 to {@value #ROWS} and the given scores. */
+    private static MockMultipartFile csv(LongFunction<String> score) {
+        StringBuilder csv = new StringBuilder("studentId,firstName,lastName,DOB,class,score\n");
+        for (long id = 1; id <= ROWS; id++) {
+            csv.append(id).append(",First").append(id).append(",Last").append(id)
+                    .append(",2005-03-15,Class1,").append(score.apply(id)).append('\n');
+        }
+        return new MockMultipartFile("file", "students.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ImportCheckpoint copy(ImportCheckpoint checkpoint) {
+        ImportCheckpoint copy = new ImportCheckpoint();
+        copy.setFileHash(checkpoint.getFileHash());
+        copy.setFileName(checkpoint.getFileName());
+        copy.setLastCommittedRow(checkpoint.getLastCommittedRow());
+        copy.setByteOffset(checkpoint.getByteOffset());
+        copy.setBatches(checkpoint.getBatches());
+        copy.setSkippedBatches(checkpoint.getSkippedBatches());
+        copy.setAffectedRows(checkpoint.getAffectedRows());
+        copy.setRejectedRows(checkpoint.getRejectedRows());
+        copy.setRejectFileId(checkpoint.getRejectFileId());
+        copy.setRejectFileBytes(checkpoint.getRejectFileBytes());
+        copy.setStartedAt(checkpoint.getStartedAt());
+        copy.setUpdatedAt(checkpoint.getUpdatedAt());
+        return copy;
+    }
+}
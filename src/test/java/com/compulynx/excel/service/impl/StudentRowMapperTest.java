@@ -0,0 +1,82 @@
+package com.compulynx.excel.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRowMapperTest {
+
+    @Test
+    void acceptsRowsAsCsvAndExcelReadThem() {
+        assertNull(StudentRowMapper.validate(List.of("1", "John", "Doe", "2005-03-15", "Class1", "65"), 0));
+        assertNull(StudentRowMapper.validate(List.of("12.0", "John", "Doe", "2004-02-29", "Class1", "65.0"), 0));
+        assertNull(StudentRowMapper.validate(List.of("1.0E7", "John", "Doe", "2005-03-15", "Class1", "-3"), 0));
+
+        assertEquals(10_000_000L, StudentRowMapper.toStudent(
+                List.of("1.0E7", "John", "Doe", "2005-03-15", "Class1", "65.0"), 10).getStudentId());
+        assertEquals(LocalDate.of(2004, 2, 29), StudentRowMapper.toStudent(
+                List.of("12.0", "John", "Doe", "2004-02-29", "Class1", "65.0"), 10).getDob());
+    }
+
+    @Test
+    void reportsEveryReasonARowIsRejected() {
+        assertEquals("expected 6 columns but found 3", StudentRowMapper.validate(List.of("1", "John", "Doe"), 0));
+        assertEquals("studentId is not a number: 'abc'; firstName is blank; score is not a whole number: '65.5'",
+                StudentRowMapper.validate(List.of("abc", " ", "Doe", "2005-03-15", "Class1", "65.5"), 0));
+        assertEquals("studentId is out of range: '0'",
+                StudentRowMapper.validate(List.of("0", "John", "Doe", "2005-03-15", "Class1", "65"), 0));
+        assertEquals("DOB is not a valid date: '2005-02-29'",
+                StudentRowMapper.validate(List.of("1", "John", "Doe", "2005-02-29", "Class1", "65"), 0));
+        assertEquals("DOB is not a yyyy-MM-dd date: '15/03/2005'",
+                StudentRowMapper.validate(List.of("1", "John", "Doe", "15/03/2005", "Class1", "65"), 0));
+        assertEquals("score is not a number: '1e'",
+                StudentRowMapper.validate(List.of("1", "John", "Doe", "2005-03-15", "Class1", "1e"), 0));
+    }
+
+    @Test
+    void parsesTheSameStrippedValueItValidates() {
+        List<String> row = List.of("\u300012\u3000", "John", "Doe", "2005-03-15", "Class1", " 65.0\u2003");
+
+        assertNull(StudentRowMapper.validate(row, 10));
+        assertEquals(12L, StudentRowMapper.toStudent(row, 10).getStudentId());
+        assertEquals(75, StudentRowMapper.toStudent(row, 10).getScore());
+    }
+
+    @Test
+    void rejectsScoresThatOverflowOnceAdjusted() {
+        List<String> highest = List.of("1", "John", "Doe", "2005-03-15", "Class1", "2147483637");
+        List<String> tooHigh = List.of("1", "John", "Doe", "2005-03-15", "Class1", "2147483638");
+        List<String> tooLow = List.of("1", "John", "Doe", "2005-03-15", "Class1", "-2147483639");
+
+        assertNull(StudentRowMapper.validate(highest, 10));
+        assertEquals(Integer.MAX_VALUE, StudentRowMapper.toStudent(highest, 10).getScore());
+        assertEquals("score is out of range: '2147483638'", StudentRowMapper.validate(tooHigh, 10));
+        assertThrows(ArithmeticException.class, () -> StudentRowMapper.toStudent(tooHigh, 10));
+        assertNull(StudentRowMapper.validate(tooHigh, 0));
+        assertEquals("score is out of range: '-2147483639'", StudentRowMapper.validate(tooLow, -10));
+        assertNull(StudentRowMapper.validate(tooLow, 10));
+    }
+
+    @Test
+    void parsesLargeIdsExactly() {
+        List<String> row = List.of("9007199254740993", "John", "Doe", "2005-03-15", "Class1", "65");
+        List<String> decimalRow = List.of("9007199254740993.0", "John", "Doe", "2005-03-15", "Class1", "65");
+
+        assertNull(StudentRowMapper.validate(row, 0));
+        assertEquals(9_007_199_254_740_993L, StudentRowMapper.toStudent(row, 0).getStudentId());
+        assertNull(StudentRowMapper.validate(decimalRow, 0));
+        assertEquals(9_007_199_254_740_993L, StudentRowMapper.toStudent(decimalRow, 0).getStudentId());
+        assertEquals(Long.MAX_VALUE, StudentRowMapper.toStudent(
+                List.of(String.valueOf(Long.MAX_VALUE), "John", "Doe", "2005-03-15", "Class1", "65"), 0)
+                .getStudentId());
+        assertEquals("studentId is out of range: '9223372036854775808'", StudentRowMapper.validate(
+                List.of("9223372036854775808", "John", "Doe", "2005-03-15", "Class1", "65"), 0));
+        assertEquals("studentId is out of range: '1E99999999999'", StudentRowMapper.validate(
+                List.of("1E99999999999", "John", "Doe", "2005-03-15", "Class1", "65"), 0));
+        assertEquals("score is out of range: '2147483648'", StudentRowMapper.validate(
+                List.of("1", "John", "Doe", "2005-03-15", "Class1", "2147483648"), 0));
+    }
+}
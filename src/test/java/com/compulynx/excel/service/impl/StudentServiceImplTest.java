@@ -0,0 +1,399 @@
+package com.compulynx.excel.service.impl;
+
+import com.compulynx.excel.config.DataProcessingDirectory;
+import com.compulynx.excel.dto.Leaderboard;
+import com.compulynx.excel.dto.LeaderboardResponse;
+import com.compulynx.excel.dto.StudentChange;
+import com.compulynx.excel.entity.Student;
+import com.compulynx.excel.index.StudentColumnarIndexHolder;
+import com.compulynx.excel.metrics.PipelineMetrics;
+import com.compulynx.excel.repository.StudentChangeRepository;
+import com.compulynx.excel.repository.StudentLeaderboardRepository;
+import com.compulynx.excel.repository.StudentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Sort;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the write paths and the change feed of the service against an in-memory students table. The change
+ * store answers like the SQL of {@link StudentChangeRepository}: the feed is the union of the students and the
+ * tombstones in the version range, ordered by version, operation and id. Leaderboards are checked against the
+ * queries they send to a mocked repository.
+ */
+class StudentServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    private final Map<Long, Student> table = new TreeMap<>();
+    private final ChangeStore changeStore = new ChangeStore();
+    private final StudentLeaderboardRepository leaderboardRepository = mock(StudentLeaderboardRepository.class);
+    private StudentServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        StudentRepository studentRepository = mock(StudentRepository.class);
+        when(studentRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<Student> students = call.getArgument(0);
+            students.forEach(student -> table.put(student.getStudentId(), copy(student)));
+            return students;
+        });
+        when(studentRepository.save(any())).thenAnswer(call -> {
+            Student student = call.getArgument(0);
+            table.put(student.getStudentId(), copy(student));
+            return student;
+        });
+        when(studentRepository.findById(anyLong())).thenAnswer(call ->
+                Optional.ofNullable(table.get(call.<Long>getArgument(0))).map(StudentServiceImplTest::copy));
+        doAnswer(call -> table.remove(call.<Long>getArgument(0))).when(studentRepository).deleteById(anyLong());
+        when(studentRepository.deleteAllByStudentIdInBulk(anyCollection())).thenAnswer(call -> {
+            Collection<Long> ids = call.getArgument(0);
+            return (int) ids.stream().filter(id -> table.remove(id) != null).count();
+        });
+        when(studentRepository.count()).thenAnswer(call -> (long) table.size());
+        doAnswer(call -> {
+            table.clear();
+            return null;
+        }).when(studentRepository).truncate();
+
+        service = new StudentServiceImpl(studentRepository, null, changeStore, leaderboardRepository, null,
+                new StudentColumnarIndexHolder(studentRepository, null, null), null, event -> { },
+                new PipelineMetrics(new SimpleMeterRegistry()), new DataProcessingDirectory(dir.toString()));
+        service.tombstoneRetention = Duration.ofDays(30);
+    }
+
+    @Test
+    void stampsEveryWriteWithTheNextVersion() {
+        save(1, 2, 3);
+        service.editStudent(2L, student(2, "Edited"));
+        service.deleteStudentById(1L);
+
+        assertEquals(new StudentChangeRepository.Clock(3, 0), changeStore.readClock());
+        assertEquals(1L, table.get(3L).getChangeVersion());
+        assertEquals(2L, table.get(2L).getChangeVersion());
+        assertEquals(Map.of(1L, 3L), changeStore.tombstoneVersions());
+    }
+
+    @Test
+    void replaysUpsertsDeletesAndReinserts() {
+        save(1, 2, 3);
+        Replica replica = new Replica();
+        replica.pull(null);
+        assertEquals(List.of("RESET@1", "UPSERT 1@1", "UPSERT 2@1", "UPSERT 3@1"), replica.received);
+
+        service.editStudent(2L, student(2, "Edited"));
+        service.deleteStudentById(1L);
+        save(1);
+        service.deleteStudentsByIds(List.of(3L, 4L));
+        replica.pull(replica.version);
+
+        // Student 4 never existed, so its delete leaves no tombstone
+        assertEquals(List.of("UPSERT 2@2", "DELETE 1@3", "UPSERT 1@4", "DELETE 3@5"), replica.received);
+        assertEquals(5, replica.version);
+        replica.assertMatches(table);
+
+        replica.pull(replica.version);
+        assertEquals(List.of(), replica.received);
+    }
+
+    @Test
+    void startsOverAfterEveryStudentIsDeleted() {
+        save(1, 2);
+        Replica before = new Replica();
+        before.pull(null);
+
+        service.deleteAllStudents();
+        assertEquals(new StudentChangeRepository.Clock(2, 2), changeStore.readClock());
+        assertTrue(changeStore.tombstones.isEmpty());
+        Replica atReset = new Replica();
+        atReset.pull(null);
+        save(5);
+
+        before.pull(before.version);
+        assertEquals(List.of("RESET@3", "UPSERT 5@3"), before.received);
+        before.assertMatches(table);
+
+        atReset.pull(atReset.version);
+        assertEquals(List.of("UPSERT 5@3"), atReset.received);
+        atReset.assertMatches(table);
+    }
+
+    @Test
+    void startsOverFromAVersionAheadOfTheClock() {
+        save(1, 2);
+        Replica replica = new Replica();
+        replica.version = 7;
+
+        replica.pull(7L);
+
+        assertEquals(List.of("RESET@1", "UPSERT 1@1", "UPSERT 2@1"), replica.received);
+        replica.assertMatches(table);
+    }
+
+    @Test
+    void compactsTombstonesOlderThanTheRetention() {
+        save(1, 2, 3, 4);
+        Replica behind = new Replica();
+        behind.pull(null);
+        service.deleteStudentById(1L);
+        service.deleteStudentById(2L);
+        Replica caughtUp = new Replica();
+        caughtUp.pull(null);
+        service.deleteStudentById(3L);
+        changeStore.age(1L, Duration.ofDays(31));
+        changeStore.age(2L, Duration.ofDays(31));
+
+        service.compactTombstones();
+
+        assertEquals(Map.of(3L, 4L), changeStore.tombstoneVersions());
+        assertEquals(new StudentChangeRepository.Clock(4, 3), changeStore.readClock());
+        behind.pull(behind.version);
+        assertEquals(List.of("RESET@4", "UPSERT 4@1"), behind.received);
+        behind.assertMatches(table);
+        caughtUp.pull(caughtUp.version);
+        assertEquals(List.of("DELETE 3@4"), caughtUp.received);
+        caughtUp.assertMatches(table);
+
+        service.compactTombstones();
+        assertEquals(Map.of(3L, 4L), changeStore.tombstoneVersions());
+    }
+
+    @Test
+    void capsAPercentLeaderboardAtTheMaximumSize() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put("Class1", 10_000L);
+        sizes.put("Class2", 40L);
+        sizes.put(null, 5L);
+        when(leaderboardRepository.countScoredByClassName()).thenReturn(sizes);
+        when(leaderboardRepository.findTopByClassName(eq(Sort.Direction.DESC), anyMap())).thenReturn(Map.of(
+                "Class1", List.of(student(1, "Top")), "Class2", List.of(student(2, "Second"))));
+        when(leaderboardRepository.findTop(eq(Sort.Direction.DESC), anyInt())).thenReturn(List.of(student(1, "Top")));
+
+        LeaderboardResponse response = service.getLeaderboard("DESC", 50, 50.0);
+
+        verify(leaderboardRepository).findTopByClassName(Sort.Direction.DESC, Map.of("Class1", 1_000, "Class2", 20));
+        verify(leaderboardRepository).findTop(Sort.Direction.DESC, 1_000);
+        verify(leaderboardRepository, never()).findClassNames();
+        assertEquals(10_045L, response.getOverall().getScoredStudents());
+        assertEquals(List.of("Class1", "Class2"),
+                response.getClasses().stream().map(Leaderboard::getClassName).toList());
+        assertEquals(10_000L, response.getClasses().get(0).getScoredStudents());
+        assertEquals(40L, response.getClasses().get(1).getScoredStudents());
+    }
+
+    @Test
+    void listsTheClassesWithoutCountingThemForALimit() {
+        when(leaderboardRepository.findClassNames()).thenReturn(List.of("Class1", "Class2", "Unscored"));
+        when(leaderboardRepository.findTopByClassName(eq(Sort.Direction.ASC), anyMap())).thenReturn(Map.of(
+                "Class1", List.of(student(1, "Last")), "Class2", List.of(student(2, "Second last"))));
+        when(leaderboardRepository.findTop(eq(Sort.Direction.ASC), anyInt())).thenReturn(List.of(student(1, "Last")));
+
+        LeaderboardResponse response = service.getLeaderboard("ASC", 5_000, null);
+
+        verify(leaderboardRepository, never()).countScoredByClassName();
+        verify(leaderboardRepository).findTopByClassName(Sort.Direction.ASC,
+                Map.of("Class1", 1_000, "Class2", 1_000, "Unscored", 1_000));
+        verify(leaderboardRepository).findTop(Sort.Direction.ASC, 1_000);
+        // A class without scored students has no leaderboard
+        assertEquals(List.of("Class1", "Class2"),
+                response.getClasses().stream().map(Leaderboard::getClassName).toList());
+        assertNull(response.getOverall().getScoredStudents());
+        assertNull(response.getClasses().get(0).getScoredStudents());
+    }
+
+    @Test
+    void readsNothingForAnEmptyLeaderboard() {
+        LeaderboardResponse response = service.getLeaderboard("DESC", 0, null);
+
+        verifyNoInteractions(leaderboardRepository);
+        assertEquals(List.of(), response.getOverall().getStudents());
+        assertEquals(List.of(), response.getClasses());
+    }
+
+    private void save(long... ids) {
+        List<List<String>> rows = new ArrayList<>();
+        rows.add(List.of("studentId", "firstName", "lastName", "DOB", "class", "score"));
+        for (long id : ids) {
+            rows.add(List.of(Long.toString(id), "First" + id, "Last" + id, "2005-03-15", "Class1", "60"));
+        }
+        service.saveStudentData(rows);
+    }
+
+    private static Student student(long id, String firstName) {
+        Student student = new Student();
+        student.setStudentId(id);
+        student.setFirstName(firstName);
+        student.setLastName("Last" + id);
+        student.setClassName("Class1");
+        student.setScore(80);
+        return student;
+    }
+
+    private static Student copy(Student student) {
+        Student copy = new Student();
+        copy.setStudentId(student.getStudentId());
+        copy.setFirstName(student.getFirstName());
+        copy.setLastName(student.getLastName());
+        copy.setDob(student.getDob());
+        copy.setClassName(student.getClassName());
+        copy.setScore(student.getScore());
+        copy.setChangeVersion(student.getChangeVersion());
+        copy.setLastModified(student.getLastModified());
+        return copy;
+    }
+
+    private static String describe(StudentChange change) {
+        return change.getOperation() == StudentChange.Operation.RESET
+                ? "RESET@" + change.getVersion()
+                : change.getOperation() + " " + change.getStudentId() + "@" + change.getVersion();
+    }
+
+    /** A change feed client keeping a copy of the table. */
+    private class Replica {
+        final Map<Long, Student> students = new HashMap<>();
+        final List<String> received = new ArrayList<>();
+        long version;
+
+        void pull(Long since) {
+            received.clear();
+            service.streamChanges(since, change -> {
+                received.add(describe(change));
+                switch (change.getOperation()) {
+                    case RESET -> students.clear();
+                    case UPSERT -> students.put(change.getStudentId(), change.getStudent());
+                    case DELETE -> students.remove(change.getStudentId());
+                }
+                version = Math.max(change.getOperation() == StudentChange.Operation.RESET ? 0 : version,
+                        change.getVersion());
+            });
+        }
+
+        void assertMatches(Map<Long, Student> table) {
+            assertEquals(table.keySet(), students.keySet());
+            table.forEach((id, student) -> {
+                assertEquals(student.getFirstName(), students.get(id).getFirstName());
+                assertEquals(student.getScore(), students.get(id).getScore());
+            });
+        }
+    }
+
+    private record Tombstone(long version, LocalDateTime deletedAt) {
+    }
+
+    /** The clock row and the tombstones table in memory, read together with {@link #table}. */
+    private class ChangeStore extends StudentChangeRepository {
+        final Map<Long, Tombstone> tombstones = new HashMap<>();
+        long version;
+        long resetVersion;
+
+        ChangeStore() {
+            super(null);
+        }
+
+        @Override
+        public long nextVersion() {
+            return ++version;
+        }
+
+        @Override
+        public Clock readClock() {
+            return new Clock(version, resetVersion);
+        }
+
+        @Override
+        public void reset(long version) {
+            resetVersion = version;
+            tombstones.clear();
+        }
+
+        @Override
+        public int recordDeletes(Collection<Long> studentIds, long version) {
+            List<Long> existing = studentIds.stream().filter(table::containsKey).toList();
+            existing.forEach(id -> tombstones.put(id, new Tombstone(version, LocalDateTime.now())));
+            return existing.size();
+        }
+
+        @Override
+        public int compactTombstones(LocalDateTime deletedBefore) {
+            Optional<Long> newest = tombstones.values().stream()
+                    .filter(tombstone -> tombstone.deletedAt().isBefore(deletedBefore))
+                    .map(Tombstone::version)
+                    .max(Long::compare);
+            if (newest.isEmpty()) {
+                return 0;
+            }
+            int before = tombstones.size();
+            tombstones.values().removeIf(tombstone -> tombstone.version() <= newest.get());
+            resetVersion = Math.max(resetVersion, newest.get());
+            return before - tombstones.size();
+        }
+
+        @Override
+        public void streamChanges(long since, long until, Consumer<StudentChange> consumer) {
+            Stream<StudentChange> upserts = table.values().stream()
+                    .filter(student -> student.getChangeVersion() > since && student.getChangeVersion() <= until)
+                    .map(student -> new StudentChange(student.getChangeVersion(), StudentChange.Operation.UPSERT,
+                            student.getStudentId(), student.getLastModified(), copy(student)));
+            Stream<StudentChange> deletes = tombstones.entrySet().stream()
+                    .filter(entry -> entry.getValue().version() > since && entry.getValue().version() <= until)
+                    .map(entry -> new StudentChange(entry.getValue().version(), StudentChange.Operation.DELETE,
+                            entry.getKey(), entry.getValue().deletedAt(), null));
+            // ORDER BY 1, 2, 3: the operation is compared as text, so DELETE sorts before UPSERT
+            Stream.concat(upserts, deletes)
+                    .sorted(Comparator.comparingLong(StudentChange::getVersion)
+                            .thenComparing(change -> change.getOperation().name())
+                            .thenComparing(StudentChange::getStudentId))
+                    .forEach(consumer);
+        }
+
+        @Override
+        public void streamSnapshot(Consumer<StudentChange> consumer) {
+            table.values().forEach(student -> consumer.accept(new StudentChange(student.getChangeVersion(),
+                    StudentChange.Operation.UPSERT, student.getStudentId(), student.getLastModified(),
+                    copy(student))));
+        }
+
+        void age(long studentId, Duration age) {
+            Tombstone tombstone = tombstones.get(studentId);
+            tombstones.put(studentId, new Tombstone(tombstone.version(), tombstone.deletedAt().minus(age)));
+        }
+
+        Map<Long, Long> tombstoneVersions() {
+            Map<Long, Long> versions = new HashMap<>();
+            tombstones.forEach((id, tombstone) -> versions.put(id, tombstone.version()));
+            return versions;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.compulynx.excel.xlsx;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XlsxStreamWriterTest {
+
+    @Test
+    void writesPackagePartsBeforeTheSheet() throws IOException {
+        Map<String, String> parts = write(writer -> writer.row().cell("Student ID"));
+
+        assertEquals(List.of("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml", "xl/_rels/workbook.xml.rels",
+                "xl/styles.xml", "xl/sharedStrings.xml", "xl/worksheets/sheet1.xml"), List.copyOf(parts.keySet()));
+        assertTrue(parts.get("xl/workbook.xml").contains("<sheet name=\"Students &amp; Co\" sheetId=\"1\""));
+        assertTrue(parts.get("[Content_Types].xml").contains("PartName=\"/xl/worksheets/sheet1.xml\""));
+    }
+
+    @Test
+    void writesNumbersAndInlineStringsWithCellReferences() throws IOException {
+        String sheet = write(writer -> {
+            writer.row().cell("Student ID").cell("Score");
+            writer.row().cell(1).cell(Integer.valueOf(-72));
+            writer.row().cell(1234567890123L).blank().cell((Integer) null).cell("x");
+        }).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<sheetData>"
+                + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>Student ID</t></is></c>"
+                + "<c r=\"B1\" t=\"inlineStr\"><is><t>Score</t></is></c></row>"
+                + "<row r=\"2\"><c r=\"A2\"><v>1</v></c><c r=\"B2\"><v>-72</v></c></row>"
+                + "<row r=\"3\"><c r=\"A3\"><v>1234567890123</v></c>"
+                + "<c r=\"D3\" t=\"inlineStr\"><is><t>x</t></is></c></row>"
+                + "</sheetData></worksheet>"), sheet);
+    }
+
+    @Test
+    void escapesMarkupUnicodeAndControlCharacters() throws IOException {
+        String sheet = write(writer -> writer.row()
+                .cell("a<b>&c").cell(" Zo\u00eb \ud83d\ude00 ").cell("tab\there\u0001")).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<t>a&lt;b&gt;&amp;c</t>"), sheet);
+        assertTrue(sheet.contains("<t xml:space=\"preserve\"> Zo\u00eb \ud83d\ude00 </t>"), sheet);
+        assertTrue(sheet.contains("<t>tab\there_x0001_</t>"), sheet);
+    }
+
+    @Test
+    void escapesTextThatLooksLikeAnEscape() throws IOException {
+        String sheet = write(writer -> writer.row()
+                .cell("_x0041_").cell("ref_xABcd_end").cell("_x00G1_ _x123_ _X0041_")).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<t>_x005F_x0041_</t>"), sheet);
+        assertTrue(sheet.contains("<t>ref_x005F_xABcd_end</t>"), sheet);
+        assertTrue(sheet.contains("<t>_x00G1_ _x123_ _X0041_</t>"), sheet);
+    }
+
+    @Test
+    void namesColumnsPastZ() throws IOException {
+        String sheet = write(writer -> {
+            writer.row();
+            for (int i = 0; i < 28; i++) {
+                writer.blank();
+            }
+            writer.cell(1);
+        }).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<c r=\"AC1\"><v>1</v></c>"), sheet);
+    }
+
+    @Test
+    void writesRowsLargerThanTheBuffer() throws IOException {
+        String longName = "n".repeat(200_000);
+        String sheet = write(writer -> {
+            for (int i = 0; i < 10_000; i++) {
+                writer.row().cell(i).cell("First" + i);
+            }
+            writer.row().cell(longName);
+        }).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<row r=\"10000\"><c r=\"A10000\"><v>9999</v></c>"
+                + "<c r=\"B10000\" t=\"inlineStr\"><is><t>First9999</t></is></c></row>"));
+        assertTrue(sheet.endsWith(longName + "</t></is></c></row></sheetData></worksheet>"));
+    }
+
+    @Test
+    void stopsAtTheLastColumn() throws IOException {
+        ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+        try (XlsxStreamWriter writer = new XlsxStreamWriter(workbook, "Students")) {
+            writer.row();
+            for (int i = 1; i < XlsxStreamWriter.MAX_COLUMNS; i++) {
+                writer.blank();
+            }
+            writer.cell(1);
+
+            assertThrows(IllegalStateException.class, () -> writer.cell(2));
+            assertThrows(IllegalStateException.class, writer::blank);
+            writer.row().cell(3);
+        }
+        String sheet = read(workbook).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<row r=\"1\"><c r=\"XFD1\"><v>1</v></c></row><row r=\"2\"><c r=\"A2\">"), sheet);
+    }
+
+    @Test
+    void stopsAtTheLastRow() throws IOException {
+        try (XlsxStreamWriter writer = new XlsxStreamWriter(OutputStream.nullOutputStream(), "Students")) {
+            for (int i = 0; i < XlsxStreamWriter.MAX_ROWS; i++) {
+                writer.row();
+            }
+            writer.cell(1);
+
+            assertEquals(XlsxStreamWriter.MAX_ROWS, writer.getRowCount());
+            assertThrows(IllegalStateException.class, writer::row);
+        }
+    }
+
+    @Test
+    void rejectsCellsOutsideARowAndInvalidSheetNames() {
+        assertThrows(IllegalStateException.class, () -> write(writer -> writer.cell(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new XlsxStreamWriter(new ByteArrayOutputStream(), "Students/2024"));
+    }
+
+    private interface Rows {
+        void write(XlsxStreamWriter writer) throws IOException;
+    }
+
+    private static Map<String, String> write(Rows rows) throws IOException {
+        ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+        try (XlsxStreamWriter writer = new XlsxStreamWriter(workbook, "Students & Co")) {
+            rows.write(writer);
+        }
+        return read(workbook);
+    }
+
+    private static Map<String, String> read(ByteArrayOutputStream workbook) throws IOException {
+        Map<String, String> parts = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(workbook.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                parts.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return parts;
+    }
+}